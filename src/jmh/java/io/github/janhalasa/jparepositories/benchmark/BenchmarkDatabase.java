@@ -0,0 +1,39 @@
+package io.github.janhalasa.jparepositories.benchmark;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.Persistence;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.Map;
+
+/**
+ * The H2 database of the tests (persistence unit {@code default} with {@code db-data.sql}) shared by a benchmark
+ * thread. SQL logging is turned off, since it would dominate the measurements.
+ */
+@State(Scope.Thread)
+public class BenchmarkDatabase {
+
+	EntityManagerFactory entityManagerFactory;
+	EntityManager em;
+	BenchmarkVendorRepository vendorRepository;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		this.entityManagerFactory = Persistence.createEntityManagerFactory(
+				"default",
+				Map.of("hibernate.show_sql", "false"));
+		this.em = this.entityManagerFactory.createEntityManager();
+		this.vendorRepository = new BenchmarkVendorRepository(this.em);
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		this.em.close();
+		this.entityManagerFactory.close();
+	}
+}
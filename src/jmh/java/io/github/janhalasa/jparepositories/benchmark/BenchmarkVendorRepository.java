@@ -0,0 +1,61 @@
+package io.github.janhalasa.jparepositories.benchmark;
+
+import io.github.janhalasa.jparepositories.CrudRepository;
+import io.github.janhalasa.jparepositories.ResultPage;
+import io.github.janhalasa.jparepositories.entity.Vendor;
+import io.github.janhalasa.jparepositories.entity.Vendor_;
+import io.github.janhalasa.jparepositories.model.OrderAttr;
+import io.github.janhalasa.jparepositories.model.OrderBy;
+import io.github.janhalasa.jparepositories.model.PredicateAndOrder;
+import io.github.janhalasa.jparepositories.model.ResultGraph;
+import jakarta.persistence.EntityManager;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Exposes equivalent queries built by the repository methods and by the fluent API, so they can be compared.
+ */
+public class BenchmarkVendorRepository extends CrudRepository<Vendor, Long> {
+
+	public BenchmarkVendorRepository(EntityManager em) {
+		super(em, Vendor.class, Vendor_.id);
+	}
+
+	public ResultPage<Vendor> pageWhereNameContains(String namePattern, int pageNumber, int pageSize) {
+		return pageWhere(
+				(cb, root) -> new PredicateAndOrder(
+						cb.like(root.get(Vendor_.name), "%" + namePattern + "%"),
+						List.of(OrderBy.asc(root.get(Vendor_.name)), OrderBy.asc(root.get(Vendor_.id)))),
+				pageNumber,
+				pageSize);
+	}
+
+	public ResultPage<Vendor> selectPageWhereNameContains(String namePattern, int pageNumber, int pageSize) {
+		return select()
+				.where((cb, root) -> cb.like(root.get(Vendor_.name), "%" + namePattern + "%"))
+				.orderBy(OrderAttr.asc(Vendor_.name), OrderAttr.asc(Vendor_.id))
+				.page(pageNumber, pageSize);
+	}
+
+	/**
+	 * Unlike {@code getByPk(pk)}, which is just {@code EntityManager::find}, this builds a criteria query.
+	 */
+	public Optional<Vendor> getByPkWithModels(Long pk) {
+		return getByPk(pk, modelsGraph());
+	}
+
+	public ResultGraph<Vendor> modelsGraph() {
+		return specifiedAssociationsOnly(List.of(Vendor_.models));
+	}
+
+	public long countWhereNameContains(String namePattern) {
+		return countWhere((cb, root) -> cb.like(root.get(Vendor_.name), "%" + namePattern + "%"));
+	}
+
+	public long selectCountWhereNameContains(String namePattern) {
+		return select()
+				.where((cb, root) -> cb.like(root.get(Vendor_.name), "%" + namePattern + "%"))
+				.count();
+	}
+}
@@ -0,0 +1,99 @@
+package io.github.janhalasa.jparepositories.benchmark;
+
+import io.github.janhalasa.jparepositories.EntityGraphRegistry;
+import io.github.janhalasa.jparepositories.JpaUtils;
+import io.github.janhalasa.jparepositories.ResultPage;
+import io.github.janhalasa.jparepositories.entity.Vendor;
+import io.github.janhalasa.jparepositories.entity.Vendor_;
+import io.github.janhalasa.jparepositories.model.OrderAttr;
+import io.github.janhalasa.jparepositories.model.ResultGraph;
+import io.github.janhalasa.jparepositories.select.Select;
+import jakarta.persistence.EntityGraph;
+import jakarta.persistence.TypedQuery;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures what the library adds on top of the JPA provider: building queries, paging, counting, primary key lookups
+ * and entity graph creation. Queries run against the in-memory H2 database, so the database time is small and
+ * the overhead of the library (and Hibernate) is visible. Run with the {@code gc} profiler to see allocation rates.
+ * <p>
+ * Every benchmark accessing the database clears the persistence context first, so entities are loaded by queries
+ * instead of being returned from the context.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class QueryBenchmark {
+
+	private static final long VENDOR_ID = 1000L;
+
+	@Benchmark
+	public TypedQuery<Vendor> selectCreateQuery(BenchmarkDatabase db) {
+		return Select.from(Vendor.class, db.em)
+				.where((cb, root) -> cb.like(root.get(Vendor_.name), "%a%"))
+				.orderBy(OrderAttr.asc(Vendor_.name), OrderAttr.asc(Vendor_.id))
+				.limit(5)
+				.createQuery();
+	}
+
+	@Benchmark
+	public ResultPage<Vendor> pageWhere(BenchmarkDatabase db) {
+		db.em.clear();
+		return db.vendorRepository.pageWhereNameContains("a", 2, 5);
+	}
+
+	@Benchmark
+	public ResultPage<Vendor> selectPage(BenchmarkDatabase db) {
+		db.em.clear();
+		return db.vendorRepository.selectPageWhereNameContains("a", 2, 5);
+	}
+
+	@Benchmark
+	public long countWhere(BenchmarkDatabase db) {
+		return db.vendorRepository.countWhereNameContains("a");
+	}
+
+	@Benchmark
+	public long selectCount(BenchmarkDatabase db) {
+		return db.vendorRepository.selectCountWhereNameContains("a");
+	}
+
+	@Benchmark
+	public Optional<Vendor> getByPkWithGraph(BenchmarkDatabase db) {
+		db.em.clear();
+		return db.vendorRepository.getByPkWithModels(VENDOR_ID);
+	}
+
+	@Benchmark
+	public Vendor entityManagerFindWithGraph(BenchmarkDatabase db) {
+		db.em.clear();
+		final ResultGraph<Vendor> resultGraph = db.vendorRepository.modelsGraph();
+		return db.em.find(Vendor.class, VENDOR_ID, Map.of(resultGraph.getType(), resultGraph.getEntityGraph()));
+	}
+
+	@Benchmark
+	public EntityGraph<Vendor> createEntityGraph(BenchmarkDatabase db) {
+		final EntityGraph<Vendor> entityGraph = db.em.createEntityGraph(Vendor.class);
+		JpaUtils.fetchesToEntityGraph(entityGraph, Vendor_.MODELS);
+		JpaUtils.fetchesToEntityGraph(entityGraph, Vendor_.MANUFACTURING_PLANTS);
+		return entityGraph;
+	}
+
+	@Benchmark
+	public EntityGraph<Vendor> entityGraphRegistry(BenchmarkDatabase db) {
+		return EntityGraphRegistry.get(db.em, Vendor.class, List.of(Vendor_.models, Vendor_.manufacturingPlants));
+	}
+}
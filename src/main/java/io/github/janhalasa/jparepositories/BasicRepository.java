@@ -1,25 +1,58 @@
 package io.github.janhalasa.jparepositories;
 
+import io.github.janhalasa.jparepositories.metrics.QueryTimer;
+import io.github.janhalasa.jparepositories.metrics.RepositoryMetrics;
+import io.github.janhalasa.jparepositories.model.CountMode;
+import io.github.janhalasa.jparepositories.model.OrderAttr;
 import io.github.janhalasa.jparepositories.model.PagingParams;
 import io.github.janhalasa.jparepositories.model.PredicateAndOrderBuilder;
 import io.github.janhalasa.jparepositories.model.PredicateBuilder;
 import io.github.janhalasa.jparepositories.model.QueryBuilder;
 import io.github.janhalasa.jparepositories.model.QueryParams;
 import io.github.janhalasa.jparepositories.model.ResultGraph;
+import io.github.janhalasa.jparepositories.model.UpdateSetter;
+import io.github.janhalasa.jparepositories.select.QueryExecutors;
+import io.github.janhalasa.jparepositories.select.QueryPlanCache;
+import io.github.janhalasa.jparepositories.select.QueryResultCache;
 import io.github.janhalasa.jparepositories.select.Select;
 import jakarta.persistence.EntityGraph;
 import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.EntityNotFoundException;
+import jakarta.persistence.FlushModeType;
+import jakarta.persistence.NoResultException;
 import jakarta.persistence.NonUniqueResultException;
+import jakarta.persistence.PersistenceUnitUtil;
+import jakarta.persistence.Query;
 import jakarta.persistence.TypedQuery;
 import jakarta.persistence.criteria.CriteriaBuilder;
 import jakarta.persistence.criteria.CriteriaDelete;
 import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.CriteriaUpdate;
 import jakarta.persistence.criteria.Root;
+import jakarta.persistence.criteria.Selection;
 import jakarta.persistence.metamodel.Attribute;
+import jakarta.persistence.metamodel.Metamodel;
 import jakarta.persistence.metamodel.SingularAttribute;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.UnaryOperator;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * Implements support for lambda queries. The most important class of the project.
@@ -29,6 +62,19 @@ import java.util.Optional;
  */
 public abstract class BasicRepository<T, P> {
 
+	private static final Logger LOGGER = LoggerFactory.getLogger(BasicRepository.class);
+
+	/**
+	 * Default batch size of batch operations like persistAll. Matches Hibernate's default ID allocation size,
+	 * so one batch needs at most one sequence call.
+	 */
+	protected static final int DEFAULT_BATCH_SIZE = 50;
+
+	/**
+	 * Default maximum number of values in a single SQL IN list. Some databases (e.g. Oracle) don't support more.
+	 */
+	protected static final int DEFAULT_IN_LIST_LIMIT = 1000;
+
 	private Class<T> entityClass;
 	private String entityName;
 	private SingularAttribute<? super T, P> pkField;
@@ -76,7 +122,8 @@ public abstract class BasicRepository<T, P> {
 	private TypedQuery<T> createTypedQuery(
 			QueryBuilder<T> queryBuilder,
 			ResultGraph<T> resultGraph,
-			boolean distinct) {
+			boolean distinct,
+			boolean readOnly) {
 		final CriteriaBuilder cb = em().getCriteriaBuilder();
 		final CriteriaQuery<T> q = cb.createQuery(entityClass);
 		final Root<T> root = q.from(entityClass);
@@ -89,6 +136,9 @@ public abstract class BasicRepository<T, P> {
 		if (resultGraph != null) {
 			typedQuery.setHint(resultGraph.getType(), resultGraph.getEntityGraph());
 		}
+		if (readOnly) {
+			JpaUtils.setReadOnly(typedQuery);
+		}
 
 		return typedQuery;
 	}
@@ -97,11 +147,12 @@ public abstract class BasicRepository<T, P> {
 		return createTypedQuery(
 				queryParams.getQueryBuilder(),
 				queryParams.getResultGraph(),
-				queryParams.isDistinct());
+				queryParams.isDistinct(),
+				queryParams.isReadOnly() || readOnlyQueries());
 	}
 
 	private TypedQuery<T> createTypedQuery(QueryBuilder<T> queryBuilder, ResultGraph<T> resultGraph) {
-		return this.createTypedQuery(queryBuilder, resultGraph, false);
+		return this.createTypedQuery(queryBuilder, resultGraph, false, readOnlyQueries());
 	}
 
 	private TypedQuery<T> createTypedQuery(QueryBuilder<T> queryBuilder) {
@@ -114,18 +165,45 @@ public abstract class BasicRepository<T, P> {
 		return createTypedQuery(queryBuilder, resultGraph);
 	}
 
+	/**
+	 * Creates a new mutable entity graph. Unless it's customized further, prefer {@link #entityGraph(List)}.
+	 */
 	protected EntityGraph<T> createEntityGraph(List<Attribute<T, ?>> nodesToAdd) {
 		EntityGraph<T> eg = em().createEntityGraph(entityClass);
 		nodesToAdd.forEach(eg::addAttributeNodes);
 		return eg;
 	}
 
+	/**
+	 * Returns a shared immutable entity graph of the given attributes. See {@link EntityGraphRegistry}.
+	 */
+	protected EntityGraph<T> entityGraph(List<Attribute<T, ?>> attributes) {
+		return EntityGraphRegistry.get(em(), entityClass, attributes);
+	}
+
+	/**
+	 * Returns a result graph fetching just the given attributes, using a shared entity graph.
+	 * See {@link ResultGraph#specifiedAssociationsOnly(EntityGraph)}.
+	 */
+	protected ResultGraph<T> specifiedAssociationsOnly(List<Attribute<T, ?>> attributes) {
+		return ResultGraph.specifiedAssociationsOnly(entityGraph(attributes));
+	}
+
+	/**
+	 * Returns a result graph fetching the given attributes and EAGER associations, using a shared entity graph.
+	 * See {@link ResultGraph#specifiedAndEagerAssociations(EntityGraph)}.
+	 */
+	protected ResultGraph<T> specifiedAndEagerAssociations(List<Attribute<T, ?>> attributes) {
+		return ResultGraph.specifiedAndEagerAssociations(entityGraph(attributes));
+	}
+
 	protected List<T> find(QueryBuilder<T> queryBuilder) {
 		return find(queryBuilder, null);
 	}
 
 	protected List<T> find(QueryBuilder<T> queryBuilder, ResultGraph<T> resultGraph) {
-		return createQuery(queryBuilder, resultGraph).getResultList();
+		final QueryTimer timer = startTimer("find");
+		return findWithinMaxResultSize(timer, "find", createQuery(queryBuilder, resultGraph), true);
 	}
 
 	protected List<T> findWhere(PredicateBuilder<T> predicateBuilder) {
@@ -153,7 +231,38 @@ public abstract class BasicRepository<T, P> {
 	}
 
 	protected List<T> findWhereOrdered(QueryParams<T> queryParameters) {
-		return createTypedQuery(queryParameters).getResultList();
+		final QueryTimer timer = startTimer("findWhere");
+		return findWithinMaxResultSize(timer, "findWhere", createTypedQuery(queryParameters), true);
+	}
+
+	/**
+	 * @param guarded whether {@link #maxResultSize()} applies. It doesn't apply to queries which are bounded
+	 *                by other means, such as a list of primary keys.
+	 */
+	private List<T> findWithinMaxResultSize(
+			QueryTimer timer,
+			String operation,
+			TypedQuery<T> typedQuery,
+			boolean guarded) {
+		final Integer maxResultSize = guarded ? maxResultSize() : null;
+		if (maxResultSize != null && typedQuery.getMaxResults() > maxResultSize) {
+			// One more row tells that the max result size is exceeded without loading all the results.
+			typedQuery.setMaxResults(maxResultSize + 1);
+		}
+		timer.built();
+		final List<T> results;
+		try {
+			results = typedQuery.getResultList();
+		} catch (RuntimeException e) {
+			throw timer.failed(e, typedQuery);
+		}
+		timer.finished(results.size(), typedQuery);
+		if (maxResultSize != null && results.size() > maxResultSize) {
+			final String queryShapeId = QueryTimer.queryShapeId(entityClass, operation);
+			LOGGER.warn("Query {} returned more than {} results, failing", queryShapeId, maxResultSize);
+			throw new ResultSizeExceededException(queryShapeId, maxResultSize);
+		}
+		return results;
 	}
 
 	protected List<T> findAll() {
@@ -164,8 +273,87 @@ public abstract class BasicRepository<T, P> {
 		return this.find((cb, root, criteriaQuery, omitSorting) -> {}, resultGraph);
 	}
 
+	/**
+	 * Returns all entities as a stream, which is loaded by one query if the number of entities doesn't exceed
+	 * {@link #maxResultSize()}, otherwise it's read from an open database cursor. The stream must be closed.
+	 * See {@link Select#listOrStream()}.
+	 */
+	protected Stream<T> findAllOrStream() {
+		return select().listOrStream();
+	}
+
+	/**
+	 * Streams the results from an open database cursor, detaching each entity once the stream moves past it,
+	 * so memory consumption doesn't depend on the number of results. The stream must be closed.
+	 * See {@link Select#stream()}.
+	 */
+	protected Stream<T> streamWhere(PredicateBuilder<T> predicateBuilder) {
+		return select()
+				.where(predicateBuilder)
+				.stream();
+	}
+
+	/**
+	 * @param fetchSize number of rows fetched by the JDBC driver in one round trip.
+	 */
+	protected Stream<T> streamWhere(PredicateBuilder<T> predicateBuilder, int fetchSize) {
+		return select()
+				.where(predicateBuilder)
+				.fetchSize(fetchSize)
+				.stream();
+	}
+
+	/**
+	 * Processes matching entities in chunks ordered by the primary key, flushing and clearing the persistence context
+	 * after each chunk. See {@link Select#forEachChunk(int, Consumer, Consumer)}.
+	 *
+	 * @return the number of processed entities.
+	 */
+	protected long forEachChunkWhere(
+			PredicateBuilder<T> predicateBuilder,
+			int chunkSize,
+			Consumer<List<T>> chunkConsumer) {
+		return select()
+				.where(predicateBuilder)
+				.forEachChunk(chunkSize, chunkConsumer);
+	}
+
+	/**
+	 * Processes entities in parallel partitions by the primary key, each one in its own {@code EntityManager}.
+	 * The chunk consumer has to be thread safe. See {@link Select#parallelScan(int, int, Consumer, Consumer)}.
+	 *
+	 * @return the number of processed entities.
+	 */
+	protected long parallelScanWhere(
+			PredicateBuilder<T> predicateBuilder,
+			int partitions,
+			int chunkSize,
+			Consumer<List<T>> chunkConsumer) {
+		return select()
+				.where(predicateBuilder)
+				.parallelScan(partitions, chunkSize, chunkConsumer, progress -> {});
+	}
+
+	protected long parallelScanAll(int partitions, int chunkSize, Consumer<List<T>> chunkConsumer) {
+		return select().parallelScan(partitions, chunkSize, chunkConsumer, progress -> {});
+	}
+
 	protected T loadWhere(QueryParams<T> queryParams) {
-		return createTypedQuery(queryParams).getSingleResult();
+		final QueryTimer timer = startTimer("loadWhere");
+		final TypedQuery<T> typedQuery = createTypedQuery(queryParams);
+		timer.built();
+		final T result;
+		try {
+			result = typedQuery.getSingleResult();
+		} catch (NoResultException e) {
+			// Not finding the entity is a regular result of the query.
+			timer.finished(0, typedQuery);
+			throw e;
+		} catch (RuntimeException e) {
+			throw timer.failed(e, typedQuery);
+		}
+		timer.finished(1, typedQuery);
+		return result;
 	}
 
 	protected T loadWhere(PredicateBuilder<T> predicateBuilder, ResultGraph<T> resultGraph) {
@@ -185,7 +373,16 @@ public abstract class BasicRepository<T, P> {
 	}
 
 	protected Optional<T> getWhere(QueryParams<T> queryParams) {
-		final List<T> results = createTypedQuery(queryParams).getResultList();
+		final QueryTimer timer = startTimer("getWhere");
+		final TypedQuery<T> typedQuery = createTypedQuery(queryParams);
+		timer.built();
+		final List<T> results;
+		try {
+			results = typedQuery.getResultList();
+		} catch (RuntimeException e) {
+			throw timer.failed(e, typedQuery);
+		}
+		timer.finished(results.size(), typedQuery);
 		if (results.isEmpty()) {
 			return Optional.empty();
 		}
@@ -204,13 +401,222 @@ public abstract class BasicRepository<T, P> {
 	}
 
 	protected Optional<T> getByPk(P pkValue) {
-		return Optional.ofNullable(this.em().find(this.entityClass(), pkValue));
+		final QueryTimer timer = startTimer("getByPk");
+		timer.built();
+		final T entity;
+		try {
+			entity = this.em().find(this.entityClass(), pkValue);
+		} catch (RuntimeException e) {
+			throw timer.failed(e, null);
+		}
+		timer.finished(entity == null ? 0 : 1, null);
+		return Optional.ofNullable(entity);
 	}
 
 	protected Optional<T> getByPk(P pkValue, ResultGraph<T> resultGraph) {
 		return this.getWhere((cb, root) -> cb.equal(root.get(this.pkField), pkValue), resultGraph);
 	}
 
+	/**
+	 * Gets a shared read-only snapshot of the entity from the {@link PkLookupCache}, or loads a new one using
+	 * a separate short-lived {@code EntityManager}. The snapshot is detached and shared by all the callers, so it
+	 * must not be modified - use {@link #getByPk(Object, ResultGraph)} to get a managed entity instead.
+	 * Without a cache (see {@link #pkLookupCache()}), the snapshot is loaded every time.
+	 */
+	protected Optional<T> getCachedByPk(P pkValue, ResultGraph<T> resultGraph) {
+		return Optional.ofNullable(getThroughPkLookupCache(pkLookupCache(), pkValue, resultGraph));
+	}
+
+	/**
+	 * Same as {@link #getCachedByPk(Object, ResultGraph)}, but it throws a {@link NoResultException}
+	 * if the entity doesn't exist.
+	 */
+	protected T loadCachedByPk(P pkValue, ResultGraph<T> resultGraph) {
+		return getCachedByPk(pkValue, resultGraph).orElseThrow(() ->
+				new NoResultException(this.entityName() + " not found by primary key " + pkValue));
+	}
+
+	/**
+	 * Returns the cache used by {@link #getCachedByPk(Object, ResultGraph)} and
+	 * {@link #loadCachedByPk(Object, ResultGraph)}. There's none by default. Override it to return
+	 * a {@link PkLookupCache} instance owned by the repository (for example a static field), typically for lookup
+	 * entities which rarely change. The repository invalidates cached entities when it modifies them.
+	 */
+	protected PkLookupCache<P, T> pkLookupCache() {
+		return null;
+	}
+
+	/**
+	 * Checks whether a cached entity is still current before it's returned from the {@link PkLookupCache}.
+	 * It's always considered current by default.
+	 */
+	protected boolean isCachedEntityCurrent(P pkValue, T cachedEntity) {
+		return true;
+	}
+
+	/**
+	 * Returns a cached snapshot, or loads a new one using a separate short-lived {@code EntityManager},
+	 * so the snapshot is never managed by the caller's persistence context.
+	 */
+	private T getThroughPkLookupCache(PkLookupCache<P, T> pkLookupCache, P pkValue, ResultGraph<T> resultGraph) {
+		final T cachedEntity = pkLookupCache == null ? null : pkLookupCache.get(pkValue, resultGraph);
+		if (cachedEntity != null && isCachedEntityCurrent(pkValue, cachedEntity)) {
+			return cachedEntity;
+		}
+		final EntityManager snapshotEm = this.em().getEntityManagerFactory().createEntityManager();
+		try {
+			final Select<T> select = Select.from(this.entityClass(), snapshotEm)
+					.where((cb, root) -> cb.equal(root.get(this.pkField), pkValue));
+			if (resultGraph != null) {
+				select.fetch(resultGraph);
+			}
+			final Optional<T> snapshot = select.optional();
+			if (pkLookupCache == null) {
+				return snapshot.orElse(null);
+			}
+			if (snapshot.isPresent()) {
+				pkLookupCache.put(pkValue, resultGraph, snapshot.get());
+			} else {
+				pkLookupCache.invalidate(pkValue);
+			}
+			return snapshot.orElse(null);
+		} finally {
+			snapshotEm.close();
+		}
+	}
+
+	private void invalidatePkLookupCache(T entity) {
+		final PkLookupCache<P, T> pkLookupCache = pkLookupCache();
+		if (pkLookupCache != null) {
+			@SuppressWarnings("unchecked")
+			final P pkValue = (P) this.em().getEntityManagerFactory().getPersistenceUnitUtil().getIdentifier(entity);
+			if (pkValue != null) {
+				pkLookupCache.invalidate(pkValue);
+			}
+		}
+	}
+
+	private void clearPkLookupCache() {
+		final PkLookupCache<P, T> pkLookupCache = pkLookupCache();
+		if (pkLookupCache != null) {
+			pkLookupCache.clear();
+		}
+	}
+
+	protected Map<P, T> getAllByPk(Collection<P> pkValues) {
+		return getAllByPk(pkValues, null);
+	}
+
+	/**
+	 * Gets entities by multiple primary keys loaded by {@code pk IN (...)} queries split into chunks
+	 * of {@link #DEFAULT_IN_LIST_LIMIT}. Every IN list is padded to a power of two by repeating its last value,
+	 * so the number of distinct SQL statements stays low and prepared statement caches are effective.
+	 * <p>
+	 * If Hibernate is the JPA provider, entities already managed by the persistence context (with the attributes
+	 * of the result graph loaded) are taken from there and only the remaining primary keys are queried.
+	 * Other providers don't allow to inspect the persistence context, so all the primary keys are queried,
+	 * although managed entities are still returned as the same instances.
+	 *
+	 * @return entities mapped by primary keys in the order of the given primary keys.
+	 *         Primary keys of non-existing entities are left out.
+	 */
+	protected Map<P, T> getAllByPk(Collection<P> pkValues, ResultGraph<T> resultGraph) {
+		final Map<P, T> entitiesByPk = new LinkedHashMap<>();
+		for (P pkValue : pkValues) {
+			entitiesByPk.put(pkValue, null);
+		}
+		final PersistenceUnitUtil unitUtil = this.em().getEntityManagerFactory().getPersistenceUnitUtil();
+		final PersistenceContexts.ManagedEntityLookup<T> managedEntities =
+				PersistenceContexts.managedEntityLookup(this.em(), this.entityClass());
+		final List<P> pksToLoad = new ArrayList<>(entitiesByPk.size());
+		for (Map.Entry<P, T> entry : entitiesByPk.entrySet()) {
+			final T managedEntity = managedEntities == null ? null : managedEntities.getManaged(entry.getKey());
+			if (managedEntity != null && isLoaded(unitUtil, managedEntity, resultGraph)) {
+				entry.setValue(managedEntity);
+			} else {
+				pksToLoad.add(entry.getKey());
+			}
+		}
+		for (List<P> chunk : chunks(pksToLoad, DEFAULT_IN_LIST_LIMIT)) {
+			final List<P> paddedChunk = padToBucketSize(chunk, DEFAULT_IN_LIST_LIMIT);
+			final QueryTimer timer = startTimer("getAllByPk");
+			final PredicateBuilder<T> inChunk = (cb, root) -> root.get(this.pkField).in(paddedChunk);
+			final TypedQuery<T> chunkQuery = createTypedQuery(new QueryParams<>(inChunk, resultGraph));
+			for (T entity : findWithinMaxResultSize(timer, "getAllByPk", chunkQuery, false)) {
+				@SuppressWarnings("unchecked")
+				final P pkValue = (P) unitUtil.getIdentifier(entity);
+				entitiesByPk.put(pkValue, entity);
+			}
+		}
+		entitiesByPk.values().removeIf(Objects::isNull);
+		return entitiesByPk;
+	}
+
+	private static <T> boolean isLoaded(PersistenceUnitUtil unitUtil, T entity, ResultGraph<T> resultGraph) {
+		return resultGraph == null || resultGraph.getEntityGraph().getAttributeNodes().stream()
+				.allMatch(attributeNode -> unitUtil.isLoaded(entity, attributeNode.getAttributeName()));
+	}
+
+	protected List<T> loadAllByPk(Collection<P> pkValues) {
+		return loadAllByPk(pkValues, null);
+	}
+
+	/**
+	 * Same as {@link #getAllByPk(Collection, ResultGraph)}, but it returns a list of entities in the order of the given
+	 * primary keys and it throws an {@link EntityNotFoundException} if any of the entities doesn't exist.
+	 */
+	protected List<T> loadAllByPk(Collection<P> pkValues, ResultGraph<T> resultGraph) {
+		final Map<P, T> entitiesByPk = getAllByPk(pkValues, resultGraph);
+		final List<T> entities = new ArrayList<>(pkValues.size());
+		final List<P> missingPks = new ArrayList<>();
+		for (P pkValue : pkValues) {
+			final T entity = entitiesByPk.get(pkValue);
+			if (entity == null) {
+				missingPks.add(pkValue);
+			}
+			entities.add(entity);
+		}
+		if (!missingPks.isEmpty()) {
+			throw new EntityNotFoundException(this.entityName() + " not found by primary keys " + missingPks);
+		}
+		return entities;
+	}
+
+	/**
+	 * Pads the list to the nearest power of two (but at most to the limit) by repeating its last value.
+	 */
+	private static <E> List<E> padToBucketSize(List<E> values, int limit) {
+		final int bucketSize = Math.min(Integer.highestOneBit(Math.max(values.size() - 1, 1)) << 1, limit);
+		final List<E> padded = new ArrayList<>(Math.max(bucketSize, values.size()));
+		padded.addAll(values);
+		while (padded.size() < bucketSize) {
+			padded.add(values.get(values.size() - 1));
+		}
+		return padded;
+	}
+
+	/**
+	 * Checks whether any entity matches the predicate without counting all of them or loading an entity.
+	 * See {@link Select#exists()}.
+	 */
+	protected boolean existsWhere(PredicateBuilder<T> predicateBuilder) {
+		return select()
+				.where(predicateBuilder)
+				.exists();
+	}
+
+	/**
+	 * Checks whether an entity with the primary key exists. The query flushes pending changes of the entity class
+	 * even if the {@code EntityManager} uses {@code FlushModeType.COMMIT}, so it finds entities persisted
+	 * in the current transaction and doesn't find removed ones.
+	 */
+	protected boolean existsByPk(P pkValue) {
+		return select()
+				.where((cb, root) -> cb.equal(root.get(this.pkField), pkValue))
+				.flushMode(FlushModeType.AUTO)
+				.exists();
+	}
+
 	protected long countWhere(PredicateBuilder<T> predicateBuilder) {
 		return countWhere(PredicateAndOrderBuilder.of(predicateBuilder).toQueryBuilder(false), false);
 	}
@@ -222,13 +628,99 @@ public abstract class BasicRepository<T, P> {
 	protected long countWhere(
 			QueryBuilder<T> queryBuilder,
 			boolean distinct) {
-		final CriteriaBuilder cb = em().getCriteriaBuilder();
+		return countWhere(em(), queryBuilder, distinct, startTimer("countWhere"));
+	}
+
+	private long countWhere(
+			EntityManager entityManager,
+			QueryBuilder<T> queryBuilder,
+			boolean distinct,
+			QueryTimer timer) {
+		final CriteriaBuilder cb = entityManager.getCriteriaBuilder();
 		final CriteriaQuery<Long> q = cb.createQuery(Long.class);
 		final Root<T> root = q.from(entityClass);
 		final CriteriaQuery<Long> criteriaQuery = q.select(distinct ? cb.countDistinct(root) : cb.count(root));
 		queryBuilder.build(cb, root, criteriaQuery, true);
-		return em.createQuery(criteriaQuery)
-				.getSingleResult();
+		final TypedQuery<Long> typedQuery = entityManager.createQuery(criteriaQuery);
+		timer.built();
+		final long count;
+		try {
+			count = typedQuery.getSingleResult();
+		} catch (RuntimeException e) {
+			throw timer.failed(e, typedQuery);
+		}
+		timer.finished(count, typedQuery);
+		return count;
+	}
+
+	/**
+	 * Counts in a separate EntityManager, because EntityManager is not thread safe and the count runs concurrently
+	 * with the page fetch.
+	 */
+	private CompletableFuture<Long> countWhereInSeparateEntityManager(
+			QueryBuilder<T> queryBuilder,
+			boolean distinct) {
+		// Started here, because the query shape is identified by the calling code.
+		final QueryTimer timer = startTimer("countWhere");
+		return supplyAsync(countEm -> countWhere(countEm, queryBuilder, distinct, timer));
+	}
+
+	/**
+	 * Executes the task asynchronously on {@link #queryExecutor()} with a new {@code EntityManager} created for it,
+	 * because EntityManager is not thread safe. The task runs outside the current transaction and entities it returns
+	 * are detached, since the {@code EntityManager} is closed once the task finishes. See {@link Select#listAsync()}.
+	 * Cancelling the returned future cancels the query only if the JPA provider supports it
+	 * (see {@link QueryExecutors#supplyAsync(EntityManagerFactory, Function, Executor)}).
+	 */
+	protected <R> CompletableFuture<R> supplyAsync(Function<EntityManager, R> task) {
+		return QueryExecutors.supplyAsync(em().getEntityManagerFactory(), task, queryExecutor());
+	}
+
+	/**
+	 * Returns the executor of asynchronous queries, which is {@link QueryExecutors#defaultExecutor()} by default.
+	 */
+	protected Executor queryExecutor() {
+		return QueryExecutors.defaultExecutor();
+	}
+
+	/**
+	 * Gets an entity by its primary key asynchronously. See {@link #supplyAsync(Function)}.
+	 */
+	protected CompletableFuture<Optional<T>> getByPkAsync(P pkValue) {
+		final QueryTimer timer = startTimer("getByPkAsync");
+		return supplyAsync(taskEm -> {
+			timer.built();
+			final T entity;
+			try {
+				entity = taskEm.find(this.entityClass(), pkValue);
+			} catch (RuntimeException e) {
+				throw timer.failed(e, null);
+			}
+			timer.finished(entity == null ? 0 : 1, null);
+			return Optional.ofNullable(entity);
+		});
+	}
+
+	/**
+	 * Finds entities asynchronously. See {@link Select#listAsync()}.
+	 */
+	protected CompletableFuture<List<T>> findWhereAsync(PredicateBuilder<T> predicateBuilder) {
+		return select()
+				.where(predicateBuilder)
+				.listAsync();
+	}
+
+	protected CompletableFuture<List<T>> findAllAsync() {
+		return select().listAsync();
+	}
+
+	/**
+	 * Counts entities asynchronously. See {@link Select#countAsync()}.
+	 */
+	protected CompletableFuture<Long> countWhereAsync(PredicateBuilder<T> predicateBuilder) {
+		return select()
+				.where(predicateBuilder)
+				.countAsync();
 	}
 
 	protected ResultPage<T> pageWhere(
@@ -269,6 +761,23 @@ public abstract class BasicRepository<T, P> {
 		));
 	}
 
+	protected ResultPage<T> pageWhere(
+			PredicateAndOrderBuilder<T> predicateAndOrderBuilder,
+			int pageNumber,
+			int pageSize,
+			boolean distinct,
+			ResultGraph<T> resultGraph,
+			CountMode countMode) {
+		return pageWhere(new PagingParams<>(
+				predicateAndOrderBuilder,
+				pageNumber,
+				pageSize,
+				resultGraph,
+				distinct,
+				countMode
+		));
+	}
+
 	protected ResultPage<T> pageWhere(PagingParams<T> pagingParams) {
 		final int pageNumber = pagingParams.getPageNumber();
 		final int pageSize = pagingParams.getPageSize();
@@ -280,45 +789,445 @@ public abstract class BasicRepository<T, P> {
 			throw new IllegalArgumentException("Page size must be 1 or higher: " + pageSize);
 		}
 
-		final TypedQuery<T> typedQuery = createTypedQuery(pagingParams.getQueryParams());
-
-		final List<T> resultList = typedQuery
-				.setFirstResult((pageNumber - 1) * pageSize)
-				.setMaxResults(pageSize)
-				.getResultList();
+		final CountMode countMode = Objects.requireNonNull(pagingParams.getCountMode(), "Count mode must not be null");
+		final QueryBuilder<T> queryBuilder = pagingParams.getQueryParams().getQueryBuilder();
 
 		// Count is always distinct, because we always want to count distinct entities, no matter how JPA composes the SELECT statement.
 		// If there are *ToMany joins applied, the count would be incorrect (higher) without the distinct clause.
-		final long totalCount = this.countWhere(pagingParams.getQueryParams().getQueryBuilder(), true);
+		final CompletableFuture<Long> parallelCount = countMode == CountMode.PARALLEL
+				? countWhereInSeparateEntityManager(queryBuilder, true)
+				: null;
+
+		final int firstResult = (pageNumber - 1) * pageSize;
+		final int maxResults = countMode == CountMode.ESTIMATE ? pageSize + 1 : pageSize;
+		final List<T> resultList;
+		try {
+			resultList = findPage(pagingParams.getQueryParams(), firstResult, maxResults);
+		} catch (RuntimeException e) {
+			if (parallelCount != null) {
+				// Cancels the count query if the JPA provider supports it, see QueryExecutors.supplyAsync.
+				parallelCount.cancel(true);
+			}
+			throw e;
+		}
+
+		switch (countMode) {
+			case PARALLEL:
+				return new ResultPage<>(parallelCount, pageNumber, pageSize, resultList);
+			case ESTIMATE:
+				return ResultPage.estimated(pageNumber, pageSize, resultList);
+			case NONE:
+				return ResultPage.withoutCount(pageNumber, pageSize, resultList);
+			default:
+				return new ResultPage<>(this.countWhere(queryBuilder, true), pageNumber, pageSize, resultList);
+		}
+	}
+
+	private List<T> findPage(QueryParams<T> queryParams, int firstResult, int maxResults) {
+		final QueryTimer timer = startTimer("pageWhere");
+		if (fetchesCollection(queryParams.getResultGraph())) {
+			timer.built();
+			final List<T> resultList;
+			try {
+				resultList = findPageInTwoPhases(queryParams, firstResult, maxResults);
+			} catch (RuntimeException e) {
+				throw timer.failed(e, null);
+			}
+			timer.finished(resultList.size(), null);
+			return resultList;
+		}
+		final TypedQuery<T> typedQuery = createTypedQuery(queryParams)
+				.setFirstResult(firstResult)
+				.setMaxResults(maxResults);
+		timer.built();
+		final List<T> resultList;
+		try {
+			resultList = typedQuery.getResultList();
+		} catch (RuntimeException e) {
+			throw timer.failed(e, typedQuery);
+		}
+		timer.finished(resultList.size(), typedQuery);
+		return resultList;
+	}
+
+	private boolean fetchesCollection(ResultGraph<T> resultGraph) {
+		if (resultGraph == null) {
+			return false;
+		}
+		final Metamodel metamodel = em().getMetamodel();
+		return JpaUtils.containsPluralAttribute(
+				metamodel,
+				metamodel.managedType(entityClass),
+				resultGraph.getEntityGraph().getAttributeNodes());
+	}
+
+	/**
+	 * Fetching a collection by a result graph multiplies rows of the root entity, so the JPA provider can't limit
+	 * the rows by SQL and it paginates in memory after reading all of them (Hibernate warns by HHH000104).
+	 * So the page is read in two phases instead. The first query selects just a page of distinct primary keys
+	 * in the requested order (sort expressions have to be selected too for DISTINCT to work), the second one
+	 * loads entities with those keys using the result graph. Then the entities are sorted by the key order.
+	 */
+	private List<T> findPageInTwoPhases(QueryParams<T> queryParams, int firstResult, int maxResults) {
+		final CriteriaBuilder cb = em().getCriteriaBuilder();
+		final CriteriaQuery<Object[]> pkQuery = cb.createQuery(Object[].class);
+		final Root<T> pkRoot = pkQuery.from(entityClass);
+		queryParams.getQueryBuilder().build(cb, pkRoot, pkQuery, false);
+		final List<Selection<?>> selections = new ArrayList<>();
+		selections.add(pkRoot.get(this.pkField));
+		pkQuery.getOrderList().forEach(order -> selections.add(order.getExpression()));
+		pkQuery.multiselect(selections).distinct(true);
+
+		@SuppressWarnings("unchecked")
+		final List<P> pks = em().createQuery(pkQuery)
+				.setFirstResult(firstResult)
+				.setMaxResults(maxResults)
+				.getResultList()
+				.stream()
+				.map(row -> (P) row[0])
+				.distinct()
+				.collect(Collectors.toList());
+		if (pks.isEmpty()) {
+			return new ArrayList<>();
+		}
+
+		final PersistenceUnitUtil unitUtil = em().getEntityManagerFactory().getPersistenceUnitUtil();
+		final Map<Object, T> entitiesByPk = new HashMap<>();
+		createTypedQuery(
+				(qcb, root, query, omitSorting) -> query.where(root.get(this.pkField).in(pks)),
+				queryParams.getResultGraph(),
+				false,
+				queryParams.isReadOnly() || readOnlyQueries())
+				.getResultList()
+				.forEach(entity -> entitiesByPk.put(unitUtil.getIdentifier(entity), entity));
+		return pks.stream()
+				.map(entitiesByPk::get)
+				.filter(Objects::nonNull)
+				.collect(Collectors.toList());
+	}
 
-		return new ResultPage<>(totalCount, pageNumber, pageSize, resultList);
+	/**
+	 * Returns a page of results using keyset (seek) pagination, which doesn't slow down with increasing page numbers.
+	 * See {@link Select#seekPage(String, int)}.
+	 *
+	 * @param continuationToken the token of the previous page or {@code null} to get the first page.
+	 */
+	protected CursorPage<T> seekPageWhere(
+			PredicateBuilder<T> predicateBuilder,
+			List<OrderAttr<T>> orderAttrs,
+			String continuationToken,
+			int pageSize) {
+		return seekPageWhere(predicateBuilder, orderAttrs, continuationToken, pageSize, null);
+	}
+
+	protected CursorPage<T> seekPageWhere(
+			PredicateBuilder<T> predicateBuilder,
+			List<OrderAttr<T>> orderAttrs,
+			String continuationToken,
+			int pageSize,
+			ResultGraph<T> resultGraph) {
+		final Select<T> select = select()
+				.where(predicateBuilder)
+				.orderBy(orderAttrs);
+		if (resultGraph != null) {
+			select.fetch(resultGraph);
+		}
+		return select.seekPage(continuationToken, pageSize);
 	}
 
 	protected void persist(T entity) {
 		this.em().persist(entity);
+		invalidateQueryResults();
 	}
 
 	protected T merge(T entity) {
+		invalidateQueryResults();
+		invalidatePkLookupCache(entity);
 		return this.em().merge(entity);
 	}
 
+	/**
+	 * Persists the entities in batches of the given size. After each batch, the persistence context is flushed
+	 * and cleared, so the JPA provider can send the inserts using JDBC batching (for Hibernate, set
+	 * {@code hibernate.jdbc.batch_size} to the same size) and the memory consumption stays flat.
+	 * Requires an active transaction. Note that the clear also detaches all other managed entities.
+	 */
+	protected BatchResult persistAll(Collection<T> entities, int batchSize) {
+		return persistAll(entities, batchSize, null);
+	}
+
+	/**
+	 * Same as {@link #persistAll(Collection, int)}, but every batch is passed to the consumer after it's flushed
+	 * and before the persistence context is cleared, so the entities are still managed and have generated
+	 * primary keys.
+	 *
+	 * @param batchConsumer consumer of the persisted entities of every batch or {@code null}.
+	 */
+	protected BatchResult persistAll(Collection<T> entities, int batchSize, Consumer<List<T>> batchConsumer) {
+		return inBatches(entities, batchSize, batchConsumer, entity -> {
+			this.em().persist(entity);
+			return entity;
+		});
+	}
+
+	/**
+	 * Merges the entities in batches of the given size. See {@link #persistAll(Collection, int)}.
+	 */
+	protected BatchResult mergeAll(Collection<T> entities, int batchSize) {
+		return mergeAll(entities, batchSize, null);
+	}
+
+	/**
+	 * Merges the entities in batches of the given size. See {@link #persistAll(Collection, int, Consumer)}.
+	 *
+	 * @param batchConsumer consumer of the merged (managed) instances of every batch or {@code null}.
+	 */
+	protected BatchResult mergeAll(Collection<T> entities, int batchSize, Consumer<List<T>> batchConsumer) {
+		return inBatches(entities, batchSize, batchConsumer, entity -> this.em().merge(entity));
+	}
+
+	private BatchResult inBatches(
+			Collection<T> entities,
+			int batchSize,
+			Consumer<List<T>> batchConsumer,
+			UnaryOperator<T> operation) {
+		if (batchSize < 1) {
+			throw new IllegalArgumentException("Batch size must be 1 or higher: " + batchSize);
+		}
+		invalidateQueryResults();
+		clearPkLookupCache();
+		final List<Duration> batchDurations = new ArrayList<>(entities.size() / batchSize + 1);
+		List<T> batch = new ArrayList<>(Math.min(batchSize, entities.size()));
+		int processedCount = 0;
+		long batchStartNanos = System.nanoTime();
+		for (T entity : entities) {
+			batch.add(operation.apply(entity));
+			processedCount++;
+			if (batch.size() == batchSize || processedCount == entities.size()) {
+				this.em().flush();
+				if (batchConsumer != null) {
+					batchConsumer.accept(batch);
+				}
+				this.em().clear();
+				final long batchEndNanos = System.nanoTime();
+				batchDurations.add(Duration.ofNanos(batchEndNanos - batchStartNanos));
+				batchStartNanos = batchEndNanos;
+				batch = new ArrayList<>(Math.min(batchSize, entities.size() - processedCount));
+			}
+		}
+		return new BatchResult(processedCount, batchDurations);
+	}
+
 	protected void remove(T entity) {
 		this.em().remove(entity);
+		invalidateQueryResults();
+		invalidatePkLookupCache(entity);
 	}
 
 	protected void removeByPk(P entityPk) {
 		this.getByPk(entityPk).ifPresent(this::remove);
 	}
 
+	/**
+	 * Removes entities with the given primary keys using set-based {@code DELETE ... WHERE pk IN (...)} statements
+	 * without loading them. Primary keys are split into chunks of {@link #DEFAULT_IN_LIST_LIMIT} and removed entities
+	 * are evicted from the persistence context. Cascades and entity listeners are not applied (see
+	 * {@link #removeWhere(PredicateBuilder)}).
+	 *
+	 * @return number of removed entities.
+	 */
+	protected int removeAllByPk(Collection<P> entityPks) {
+		return removeAllByPk(entityPks, DEFAULT_IN_LIST_LIMIT, true);
+	}
+
+	/**
+	 * @param inListLimit maximum number of primary keys in one DELETE statement.
+	 * @param evict       whether to evict removed entities from the persistence context and the second-level cache.
+	 */
+	protected int removeAllByPk(Collection<P> entityPks, int inListLimit, boolean evict) {
+		final PersistenceContexts.ManagedEntityLookup<T> managedEntities = evict
+				? PersistenceContexts.managedEntityLookup(this.em(), this.entityClass())
+				: null;
+		int removedCount = 0;
+		for (List<P> chunk : chunks(new ArrayList<>(entityPks), inListLimit)) {
+			removedCount += removeWhere((cb, root) -> root.get(this.pkField).in(chunk));
+			if (evict) {
+				chunk.forEach(entityPk -> evict(managedEntities, entityPk));
+			}
+		}
+		return removedCount;
+	}
+
+	/**
+	 * Removes the entity from the persistence context and the second-level cache without loading it. With Hibernate,
+	 * only entities and proxies found in the persistence context are detached. Other providers don't allow to inspect it,
+	 * so getReference() is detached instead, which creates a throwaway proxy if the entity is not managed
+	 * (or loads it if it can't be proxied).
+	 */
+	private void evict(PersistenceContexts.ManagedEntityLookup<T> managedEntities, P entityPk) {
+		if (managedEntities == null) {
+			this.em().detach(this.em().getReference(this.entityClass(), entityPk));
+		} else {
+			final T managedEntity = managedEntities.getManaged(entityPk);
+			if (managedEntity != null) {
+				this.em().detach(managedEntity);
+			}
+			final Object proxy = managedEntities.getProxy(entityPk);
+			if (proxy != null) {
+				this.em().detach(proxy);
+			}
+		}
+		this.em().getEntityManagerFactory().getCache().evict(this.entityClass(), entityPk);
+	}
+
+	private static <E> List<List<E>> chunks(List<E> values, int chunkSize) {
+		if (chunkSize < 1) {
+			throw new IllegalArgumentException("Chunk size must be 1 or higher: " + chunkSize);
+		}
+		final List<List<E>> chunks = new ArrayList<>(values.size() / chunkSize + 1);
+		for (int i = 0; i < values.size(); i += chunkSize) {
+			chunks.add(values.subList(i, Math.min(i + chunkSize, values.size())));
+		}
+		return chunks;
+	}
+
 	protected int removeWhere(PredicateBuilder<T> predicateBuilder) {
+		final QueryTimer timer = startTimer("removeWhere");
 		CriteriaBuilder cb = em().getCriteriaBuilder();
 		CriteriaDelete<T> delete = cb.createCriteriaDelete(this.entityClass());
 		Root<T> root = delete.from(this.entityClass());
 		delete.where(predicateBuilder.build(cb, root));
-		return em().createQuery(delete).executeUpdate();
+		invalidateQueryResults();
+		clearPkLookupCache();
+		final Query query = em().createQuery(delete);
+		timer.built();
+		final int removedCount;
+		try {
+			removedCount = query.executeUpdate();
+		} catch (RuntimeException e) {
+			throw timer.failed(e, query);
+		}
+		timer.finished(removedCount, query);
+		return removedCount;
+	}
+
+	/**
+	 * Returns the cache of compiled queries used by queries created by {@link #select()}. There's none by default.
+	 * Override it to return a {@link QueryPlanCache} instance shared by the application's repositories.
+	 */
+	protected QueryPlanCache queryPlanCache() {
+		return null;
+	}
+
+	/**
+	 * Returns the cache of query results used by {@link Select#cached(Duration, String)} of queries created
+	 * by {@link #select()}. There's none by default. Override it to return a {@link QueryResultCache} instance shared
+	 * by the application's repositories. The repository invalidates cached results of its entity class whenever
+	 * it modifies an entity, and once more after the transaction commits (see {@link #afterCommit(Runnable)}).
+	 */
+	protected QueryResultCache queryResultCache() {
+		return null;
+	}
+
+	private void invalidateQueryResults() {
+		final QueryResultCache queryResultCache = queryResultCache();
+		if (queryResultCache != null) {
+			queryResultCache.invalidate(this.entityClass());
+			// A concurrent query may cache the old state between the invalidation and the commit.
+			afterCommit(() -> queryResultCache.invalidate(this.entityClass()));
+		}
+	}
+
+	/**
+	 * Runs the action after the current transaction commits. It's used to invalidate cached query results again,
+	 * since a concurrent query may cache the old state of the modified entities before the commit. By default,
+	 * the action is registered as a synchronization of the current JTA transaction. Resource-local transactions
+	 * don't offer any way to find out when they commit, so the action is not run and the old state may stay
+	 * cached until it expires. Override it to use the transaction manager of your framework,
+	 * e.g. {@code TransactionSynchronizationManager.registerSynchronization} of Spring.
+	 */
+	protected void afterCommit(Runnable action) {
+		JtaSynchronizations.afterCommit(action);
+	}
+
+	/**
+	 * Updates all entities matching the predicate using a single set-based UPDATE statement, without loading them:
+	 * <pre>{@code
+	 * updateWhere(
+	 *         (cb, root) -> cb.equal(root.get(Car_.color), "red"),
+	 *         (cb, root, update) -> update.set(Car_.color, "blue"));
+	 * }</pre>
+	 * The statement bypasses the persistence context, so already loaded entities are not updated,
+	 * and entity listeners are not invoked.
+	 *
+	 * @return number of updated entities.
+	 */
+	protected int updateWhere(PredicateBuilder<T> predicateBuilder, UpdateSetter<T> updateSetter) {
+		final QueryTimer timer = startTimer("updateWhere");
+		CriteriaBuilder cb = em().getCriteriaBuilder();
+		CriteriaUpdate<T> update = cb.createCriteriaUpdate(this.entityClass());
+		Root<T> root = update.from(this.entityClass());
+		updateSetter.build(cb, root, update);
+		update.where(predicateBuilder.build(cb, root));
+		invalidateQueryResults();
+		clearPkLookupCache();
+		final Query query = em().createQuery(update);
+		timer.built();
+		final int updatedCount;
+		try {
+			updatedCount = query.executeUpdate();
+		} catch (RuntimeException e) {
+			throw timer.failed(e, query);
+		}
+		timer.finished(updatedCount, query);
+		return updatedCount;
+	}
+
+	/**
+	 * Defines whether entity queries of the repository return read-only entities by default (see
+	 * {@link Select#readOnly()}). Read-only entities are not dirty checked, so changes made to them are not saved.
+	 * It's off by default.
+	 */
+	protected boolean readOnlyQueries() {
+		return false;
+	}
+
+	/**
+	 * Returns the maximum number of entities a query of the repository may return. Queries returning a list
+	 * ({@code find*}, {@code findAll} and {@code list} of {@link #select()}) fetch at most one more row and throw
+	 * a {@link ResultSizeExceededException} if they get it, so a missing condition can't load a whole table
+	 * into memory. Use pagination, {@link #findAllOrStream()} or streaming for bigger results. There's no limit
+	 * by default.
+	 */
+	protected Integer maxResultSize() {
+		return null;
+	}
+
+	/**
+	 * Returns the metrics receiving build and execution times and result sizes of the repository queries,
+	 * including queries created by {@link #select()}. There are none by default. Override it to return
+	 * a {@link RepositoryMetrics} instance shared by the application's repositories, such as
+	 * {@link io.github.janhalasa.jparepositories.metrics.HistogramRepositoryMetrics}.
+	 */
+	protected RepositoryMetrics repositoryMetrics() {
+		return null;
+	}
+
+	private QueryTimer startTimer(String operation) {
+		return QueryTimer.start(repositoryMetrics(), LOGGER, entityClass, operation);
 	}
 
 	protected Select<T> select() {
-		return Select.from(this.entityClass(), this.em());
+		final Select<T> select = Select.from(this.entityClass(), this.em())
+				.readOnly(readOnlyQueries())
+				.resultCache(queryResultCache())
+				.metrics(repositoryMetrics())
+				.executor(queryExecutor());
+		final Integer maxResultSize = maxResultSize();
+		if (maxResultSize != null) {
+			select.maxResultSize(maxResultSize);
+		}
+		final QueryPlanCache queryPlanCache = queryPlanCache();
+		return queryPlanCache == null ? select : select.compiled(queryPlanCache);
 	}
 }
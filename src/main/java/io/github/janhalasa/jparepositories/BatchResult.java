@@ -0,0 +1,44 @@
+package io.github.janhalasa.jparepositories;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Result of a batch operation (e.g. persisting many entities), which was executed in batches flushed separately.
+ * It doesn't keep the processed entities, so memory consumption of the operation stays flat. Entities of every batch
+ * can be handed over to a batch consumer of the operation instead.
+ */
+public class BatchResult {
+
+    private final int entityCount;
+    private final List<Duration> batchDurations;
+
+    public BatchResult(
+            int entityCount,
+            List<Duration> batchDurations) {
+        this.entityCount = entityCount;
+        this.batchDurations = batchDurations;
+    }
+
+    /**
+     * @return number of the processed entities.
+     */
+    public int getEntityCount() {
+        return entityCount;
+    }
+
+    /**
+     * @return durations of the individual batches, including their flush.
+     */
+    public List<Duration> getBatchDurations() {
+        return batchDurations;
+    }
+
+    public int getBatchCount() {
+        return batchDurations.size();
+    }
+
+    public Duration getTotalDuration() {
+        return batchDurations.stream().reduce(Duration.ZERO, Duration::plus);
+    }
+}
@@ -0,0 +1,59 @@
+package io.github.janhalasa.jparepositories;
+
+import java.time.Duration;
+
+/**
+ * Progress of chunked processing of query results, reported after each processed chunk.
+ */
+public class ChunkProgress {
+
+    private final int chunkNumber;
+    private final int chunkSize;
+    private final long processedCount;
+    private final Duration elapsed;
+
+    public ChunkProgress(
+            int chunkNumber,
+            int chunkSize,
+            long processedCount,
+            Duration elapsed) {
+        this.chunkNumber = chunkNumber;
+        this.chunkSize = chunkSize;
+        this.processedCount = processedCount;
+        this.elapsed = elapsed;
+    }
+
+    /**
+     * @return number of the processed chunk, starting from 1.
+     */
+    public int getChunkNumber() {
+        return chunkNumber;
+    }
+
+    /**
+     * @return number of results in the processed chunk.
+     */
+    public int getChunkSize() {
+        return chunkSize;
+    }
+
+    /**
+     * @return number of results processed so far, including the processed chunk.
+     */
+    public long getProcessedCount() {
+        return processedCount;
+    }
+
+    /**
+     * @return time elapsed since the processing started.
+     */
+    public Duration getElapsed() {
+        return elapsed;
+    }
+
+    @Override
+    public String toString() {
+        return "ChunkProgress{chunkNumber=" + chunkNumber + ", chunkSize=" + chunkSize
+                + ", processedCount=" + processedCount + ", elapsed=" + elapsed + '}';
+    }
+}
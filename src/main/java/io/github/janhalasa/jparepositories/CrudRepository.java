@@ -1,10 +1,15 @@
 package io.github.janhalasa.jparepositories;
 
 import io.github.janhalasa.jparepositories.model.PredicateBuilder;
+import io.github.janhalasa.jparepositories.model.UpdateSetter;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.metamodel.SingularAttribute;
 import jakarta.transaction.Transactional;
 
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Consumer;
+
 public class CrudRepository<T, P> extends ReadPersistRepository<T, P> {
 
     /**
@@ -26,6 +31,21 @@ public class CrudRepository<T, P> extends ReadPersistRepository<T, P> {
         return super.merge(entity);
     }
 
+    @Transactional
+    public BatchResult mergeAll(Collection<T> entities) {
+        return super.mergeAll(entities, DEFAULT_BATCH_SIZE);
+    }
+
+    @Transactional
+    public BatchResult mergeAll(Collection<T> entities, int batchSize) {
+        return super.mergeAll(entities, batchSize);
+    }
+
+    @Transactional
+    public BatchResult mergeAll(Collection<T> entities, int batchSize, Consumer<List<T>> batchConsumer) {
+        return super.mergeAll(entities, batchSize, batchConsumer);
+    }
+
     @Transactional
     public void remove(T entity) {
         super.remove(entity);
@@ -36,7 +56,21 @@ public class CrudRepository<T, P> extends ReadPersistRepository<T, P> {
         super.removeByPk(entityPk);
     }
 
+    @Transactional
+    public int removeAllByPk(Collection<P> entityPks) {
+        return super.removeAllByPk(entityPks);
+    }
+
+    @Transactional
+    public int removeAllByPk(Collection<P> entityPks, int inListLimit, boolean evict) {
+        return super.removeAllByPk(entityPks, inListLimit, evict);
+    }
+
     protected int removeWhere(PredicateBuilder<T> predicateBuilder) {
         return super.removeWhere(predicateBuilder);
     }
+
+    protected int updateWhere(PredicateBuilder<T> predicateBuilder, UpdateSetter<T> updateSetter) {
+        return super.updateWhere(predicateBuilder, updateSetter);
+    }
 }
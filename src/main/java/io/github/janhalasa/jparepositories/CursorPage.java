@@ -0,0 +1,46 @@
+package io.github.janhalasa.jparepositories;
+
+import java.util.List;
+
+/**
+ * A page of results produced by keyset (seek) pagination. In contrast to {@link ResultPage}, it doesn't know
+ * the total count or its page number. Instead, it carries an opaque continuation token which is used to fetch
+ * the following page.
+ *
+ * @param <T> the type of the results
+ */
+public class CursorPage<T> {
+
+    private final List<T> results;
+    private final Integer pageSize;
+    private final String nextToken;
+
+    public CursorPage(
+            List<T> results,
+            Integer pageSize,
+            String nextToken) {
+        this.results = results;
+        this.pageSize = pageSize;
+        this.nextToken = nextToken;
+    }
+
+    public List<T> getResults() {
+        return results;
+    }
+
+    public Integer getPageSize() {
+        return pageSize;
+    }
+
+    /**
+     * @return the continuation token to be passed when requesting the following page,
+     *         or {@code null} if this is the last page.
+     */
+    public String getNextToken() {
+        return nextToken;
+    }
+
+    public boolean hasNext() {
+        return nextToken != null;
+    }
+}
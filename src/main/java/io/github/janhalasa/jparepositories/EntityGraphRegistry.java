@@ -0,0 +1,55 @@
+package io.github.janhalasa.jparepositories;
+
+import jakarta.persistence.EntityGraph;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.metamodel.Attribute;
+
+import java.util.Collection;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+
+/**
+ * Provides entity graphs reused by all queries instead of building a new graph for every query. A graph is built
+ * on the first request and registered in the {@code EntityManagerFactory} as a named entity graph, so its lifecycle
+ * is bound to the factory. Graphs are identified by the entity class and the set of attribute paths, so the order
+ * of attributes doesn't matter.
+ * <p>
+ * Returned graphs are immutable, since they are shared.
+ */
+public final class EntityGraphRegistry {
+
+    private static final String GRAPH_NAME_PREFIX = EntityGraphRegistry.class.getName() + "#";
+
+    private EntityGraphRegistry() {
+    }
+
+    public static <T> EntityGraph<T> get(
+            EntityManager em,
+            Class<T> entityClass,
+            Collection<? extends Attribute<? super T, ?>> attributes) {
+        return getByPaths(
+                em,
+                entityClass,
+                attributes.stream().map(Attribute::getName).collect(Collectors.toList()));
+    }
+
+    /**
+     * Returns a graph of the given attribute paths, such as {@code "models.cars"}.
+     * See {@link JpaUtils#fetchesToEntityGraph(EntityGraph, String)}.
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> EntityGraph<T> getByPaths(EntityManager em, Class<T> entityClass, Collection<String> paths) {
+        final SortedSet<String> sortedPaths = new TreeSet<>(paths);
+        final String graphName = GRAPH_NAME_PREFIX + entityClass.getName() + sortedPaths;
+        try {
+            return (EntityGraph<T>) em.getEntityGraph(graphName);
+        } catch (IllegalArgumentException e) {
+            // Not registered yet. If two threads get here, both register an equal graph, which doesn't matter.
+            final EntityGraph<T> entityGraph = em.createEntityGraph(entityClass);
+            sortedPaths.forEach(path -> JpaUtils.fetchesToEntityGraph(entityGraph, path));
+            em.getEntityManagerFactory().addNamedEntityGraph(graphName, entityGraph);
+            return (EntityGraph<T>) em.getEntityGraph(graphName);
+        }
+    }
+}
@@ -1,18 +1,41 @@
 package io.github.janhalasa.jparepositories;
 
+import jakarta.persistence.AttributeNode;
+import jakarta.persistence.ElementCollection;
 import jakarta.persistence.Entity;
 import jakarta.persistence.EntityGraph;
 import jakarta.persistence.EntityManager;
+import jakarta.persistence.FetchType;
+import jakarta.persistence.FlushModeType;
+import jakarta.persistence.ManyToMany;
+import jakarta.persistence.ManyToOne;
+import jakarta.persistence.OneToMany;
+import jakarta.persistence.OneToOne;
 import jakarta.persistence.Subgraph;
+import jakarta.persistence.TypedQuery;
 import jakarta.persistence.criteria.CriteriaBuilder;
 import jakarta.persistence.criteria.CriteriaQuery;
 import jakarta.persistence.criteria.Expression;
 import jakarta.persistence.criteria.Fetch;
+import jakarta.persistence.criteria.FetchParent;
 import jakarta.persistence.criteria.From;
 import jakarta.persistence.criteria.Join;
 import jakarta.persistence.criteria.Predicate;
 import jakarta.persistence.criteria.Root;
 import jakarta.persistence.criteria.Selection;
+import jakarta.persistence.metamodel.Attribute;
+import jakarta.persistence.metamodel.ManagedType;
+import jakarta.persistence.metamodel.Metamodel;
+import jakarta.persistence.metamodel.PluralAttribute;
+import jakarta.persistence.metamodel.SingularAttribute;
+import jakarta.persistence.metamodel.Type;
+
+import java.lang.reflect.AnnotatedElement;
+import java.lang.reflect.Member;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
 
 /**
  * This class was taken from (just methods needed in this project)
@@ -23,6 +46,9 @@ import jakarta.persistence.criteria.Selection;
 public class JpaUtils {
 
     public static final String JAKARTA_PERSISTENCE_LOADGRAPH = "jakarta.persistence.loadgraph";
+    public static final String JAKARTA_PERSISTENCE_FETCHGRAPH = "jakarta.persistence.fetchgraph";
+    public static final String HIBERNATE_FETCH_SIZE = "org.hibernate.fetchSize";
+    public static final String HIBERNATE_READ_ONLY = "org.hibernate.readOnly";
 
     private static volatile int aliasCount = 0;
 
@@ -164,13 +190,143 @@ public class JpaUtils {
         return !entityName.trim().isEmpty() ? entityName : entityClass.getSimpleName();
     }
 
+    /**
+     * Makes the query return read-only entities. Hibernate doesn't keep snapshots of their state for dirty checking,
+     * so they take less memory and flushing skips them. The query also doesn't flush pending changes before
+     * its execution, so it doesn't see them.
+     */
+    public static void setReadOnly(TypedQuery<?> typedQuery) {
+        typedQuery.setHint(HIBERNATE_READ_ONLY, true);
+        typedQuery.setFlushMode(FlushModeType.COMMIT);
+    }
+
+    /**
+     * Describes attribute nodes of an entity graph including their subgraphs, so equal graphs have equal descriptions.
+     */
+    public static List<String> describeEntityGraph(List<AttributeNode<?>> attributeNodes) {
+        final List<String> description = new ArrayList<>();
+        for (AttributeNode<?> attributeNode : attributeNodes) {
+            description.add(attributeNode.getAttributeName());
+            for (Subgraph<?> subgraph : attributeNode.getSubgraphs().values()) {
+                description.add(attributeNode.getAttributeName() + describeEntityGraph(subgraph.getAttributeNodes()));
+            }
+        }
+        return description;
+    }
+
+    /**
+     * Checks whether the attribute nodes of an entity graph (including subgraphs) contain a collection.
+     * Fetching a collection multiplies rows of the root entity, so such a query can't be paginated by SQL.
+     */
+    public static boolean containsPluralAttribute(
+            Metamodel metamodel,
+            ManagedType<?> managedType,
+            List<AttributeNode<?>> attributeNodes) {
+        for (AttributeNode<?> attributeNode : attributeNodes) {
+            if (managedType.getAttribute(attributeNode.getAttributeName()).isCollection()) {
+                return true;
+            }
+            for (Subgraph<?> subgraph : attributeNode.getSubgraphs().values()) {
+                if (containsPluralAttribute(
+                        metamodel,
+                        metamodel.managedType(subgraph.getClassType()),
+                        subgraph.getAttributeNodes())) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns entity classes joined or fetched from the given root (or join), including nested joins.
+     */
+    public static Set<Class<?>> joinedEntityClasses(From<?, ?> from) {
+        final Set<Class<?>> entityClasses = new LinkedHashSet<>();
+        addJoinedEntityClasses(entityClasses, from);
+        return entityClasses;
+    }
+
+    private static void addJoinedEntityClasses(Set<Class<?>> entityClasses, FetchParent<?, ?> fetchParent) {
+        if (fetchParent instanceof From) {
+            for (Join<?, ?> join : ((From<?, ?>) fetchParent).getJoins()) {
+                addEntityClass(entityClasses, join.getAttribute());
+                addJoinedEntityClasses(entityClasses, join);
+            }
+        }
+        for (Fetch<?, ?> fetch : fetchParent.getFetches()) {
+            addEntityClass(entityClasses, fetch.getAttribute());
+            addJoinedEntityClasses(entityClasses, fetch);
+        }
+    }
+
+    /**
+     * Returns entity classes of the attribute nodes of an entity graph (including subgraphs).
+     */
+    public static Set<Class<?>> graphEntityClasses(
+            Metamodel metamodel,
+            ManagedType<?> managedType,
+            List<AttributeNode<?>> attributeNodes) {
+        final Set<Class<?>> entityClasses = new LinkedHashSet<>();
+        for (AttributeNode<?> attributeNode : attributeNodes) {
+            addEntityClass(entityClasses, managedType.getAttribute(attributeNode.getAttributeName()));
+            for (Subgraph<?> subgraph : attributeNode.getSubgraphs().values()) {
+                entityClasses.addAll(graphEntityClasses(
+                        metamodel,
+                        metamodel.managedType(subgraph.getClassType()),
+                        subgraph.getAttributeNodes()));
+            }
+        }
+        return entityClasses;
+    }
+
+    private static void addEntityClass(Set<Class<?>> entityClasses, Attribute<?, ?> attribute) {
+        final Type<?> targetType = attribute instanceof PluralAttribute
+                ? ((PluralAttribute<?, ?, ?>) attribute).getElementType()
+                : ((SingularAttribute<?, ?>) attribute).getType();
+        if (targetType.getPersistenceType() == Type.PersistenceType.ENTITY) {
+            entityClasses.add(targetType.getJavaType());
+        }
+    }
+
+    /**
+     * Checks whether the entity has eagerly loaded associations or element collections. Entities referenced by them
+     * are loaded together with the entity and {@link EntityManager#detach(Object)} leaves them managed, unless
+     * the detach cascades. Fetch types are read from the mapping annotations, XML mappings are not considered.
+     */
+    public static boolean hasEagerAssociations(Metamodel metamodel, Class<?> entityClass) {
+        for (Attribute<?, ?> attribute : metamodel.managedType(entityClass).getAttributes()) {
+            if ((attribute.isAssociation() || attribute.isCollection()) && isEager(attribute.getJavaMember())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isEager(Member member) {
+        if (!(member instanceof AnnotatedElement)) {
+            return false;
+        }
+        final AnnotatedElement element = (AnnotatedElement) member;
+        final ManyToOne manyToOne = element.getAnnotation(ManyToOne.class);
+        final OneToOne oneToOne = element.getAnnotation(OneToOne.class);
+        final OneToMany oneToMany = element.getAnnotation(OneToMany.class);
+        final ManyToMany manyToMany = element.getAnnotation(ManyToMany.class);
+        final ElementCollection elementCollection = element.getAnnotation(ElementCollection.class);
+        return (manyToOne != null && manyToOne.fetch() == FetchType.EAGER)
+                || (oneToOne != null && oneToOne.fetch() == FetchType.EAGER)
+                || (oneToMany != null && oneToMany.fetch() == FetchType.EAGER)
+                || (manyToMany != null && manyToMany.fetch() == FetchType.EAGER)
+                || (elementCollection != null && elementCollection.fetch() == FetchType.EAGER);
+    }
+
     public static <T> void fetchesToEntityGraph(EntityGraph<T> graphRoot, String path) {
         final String[] parts = path.split("\\.");
         Subgraph<?> itemGraph = null;
         for (int i = 0; i < parts.length; i++) {
             String part = parts[i];
             if (i < parts.length - 1) {
-                itemGraph = graphRoot.addSubgraph(part);
+                itemGraph = itemGraph == null ? graphRoot.addSubgraph(part) : itemGraph.addSubgraph(part);
             } else if (itemGraph != null) {
                 itemGraph.addAttributeNodes(part);
             } else {
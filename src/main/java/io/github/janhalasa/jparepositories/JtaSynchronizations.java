@@ -0,0 +1,62 @@
+package io.github.janhalasa.jparepositories;
+
+import jakarta.transaction.Status;
+import jakarta.transaction.Synchronization;
+import jakarta.transaction.TransactionSynchronizationRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.naming.InitialContext;
+import javax.naming.NamingException;
+
+/**
+ * Registers actions to be run after a commit of the current JTA transaction. The
+ * {@link TransactionSynchronizationRegistry} is looked up once by its standard JNDI name. Without JTA
+ * (resource-local transactions, no JNDI), no actions are registered.
+ */
+final class JtaSynchronizations {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(JtaSynchronizations.class);
+    private static final String REGISTRY_JNDI_NAME = "java:comp/TransactionSynchronizationRegistry";
+
+    private static volatile TransactionSynchronizationRegistry registry;
+    private static volatile boolean lookedUp = false;
+
+    private JtaSynchronizations() {
+    }
+
+    /**
+     * @return whether the action was registered, which requires an active JTA transaction.
+     */
+    static boolean afterCommit(Runnable action) {
+        final TransactionSynchronizationRegistry synchronizationRegistry = registry();
+        if (synchronizationRegistry == null || synchronizationRegistry.getTransactionKey() == null) {
+            return false;
+        }
+        synchronizationRegistry.registerInterposedSynchronization(new Synchronization() {
+            @Override
+            public void beforeCompletion() {
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                if (status == Status.STATUS_COMMITTED) {
+                    action.run();
+                }
+            }
+        });
+        return true;
+    }
+
+    private static TransactionSynchronizationRegistry registry() {
+        if (!lookedUp) {
+            try {
+                registry = (TransactionSynchronizationRegistry) new InitialContext().lookup(REGISTRY_JNDI_NAME);
+            } catch (NamingException | RuntimeException e) {
+                LOGGER.debug("No JTA TransactionSynchronizationRegistry found, caches are invalidated before commit only");
+            }
+            lookedUp = true;
+        }
+        return registry;
+    }
+}
@@ -0,0 +1,87 @@
+package io.github.janhalasa.jparepositories;
+
+import jakarta.persistence.EntityManager;
+import org.hibernate.engine.spi.PersistenceContext;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.persister.entity.EntityPersister;
+
+/**
+ * Looks up entities managed by a persistence context by their primary keys without loading them or creating
+ * proxies, which JPA doesn't offer. It's supported only if Hibernate is the JPA provider.
+ */
+final class PersistenceContexts {
+
+    private static final boolean HIBERNATE_PRESENT = isClassPresent("org.hibernate.engine.spi.SessionImplementor");
+
+    /**
+     * Finds an entity in the persistence context.
+     *
+     * @param <T> entity type
+     */
+    interface ManagedEntityLookup<T> {
+
+        /**
+         * @return the managed entity or {@code null} if it's not managed (including removed entities
+         *         and uninitialized proxies).
+         */
+        T getManaged(Object pkValue);
+
+        /**
+         * @return the proxy of the entity (e.g. created by {@code EntityManager.getReference}) or {@code null}
+         *         if there's none.
+         */
+        Object getProxy(Object pkValue);
+    }
+
+    private PersistenceContexts() {
+    }
+
+    /**
+     * @return the lookup or {@code null} if the persistence context can't be inspected by the JPA provider.
+     */
+    static <T> ManagedEntityLookup<T> managedEntityLookup(EntityManager em, Class<T> entityClass) {
+        return HIBERNATE_PRESENT ? HibernateLookup.create(em, entityClass) : null;
+    }
+
+    private static boolean isClassPresent(String className) {
+        try {
+            Class.forName(className, false, PersistenceContexts.class.getClassLoader());
+            return true;
+        } catch (ClassNotFoundException | LinkageError e) {
+            return false;
+        }
+    }
+
+    /**
+     * Separated, so Hibernate classes are loaded only if they are present.
+     */
+    private static final class HibernateLookup {
+
+        private static <T> ManagedEntityLookup<T> create(EntityManager em, Class<T> entityClass) {
+            final SessionImplementor session;
+            try {
+                session = em.unwrap(SessionImplementor.class);
+            } catch (RuntimeException e) {
+                // Another JPA provider
+                return null;
+            }
+            final EntityPersister persister = session.getFactory()
+                    .getRuntimeMetamodels()
+                    .getMappingMetamodel()
+                    .getEntityDescriptor(entityClass);
+            final PersistenceContext persistenceContext = session.getPersistenceContextInternal();
+            return new ManagedEntityLookup<>() {
+                @Override
+                public T getManaged(Object pkValue) {
+                    final Object entity = persistenceContext.getEntity(session.generateEntityKey(pkValue, persister));
+                    return entityClass.isInstance(entity) && em.contains(entity) ? entityClass.cast(entity) : null;
+                }
+
+                @Override
+                public Object getProxy(Object pkValue) {
+                    return persistenceContext.getProxy(session.generateEntityKey(pkValue, persister));
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,211 @@
+package io.github.janhalasa.jparepositories;
+
+import io.github.janhalasa.jparepositories.model.ResultGraph;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A bounded cache of entities by primary keys used by {@code getCachedByPk} and {@code loadCachedByPk}
+ * of a repository (see {@link BasicRepository#pkLookupCache()}). Entities are cached separately for every result
+ * graph, since they have different associations loaded.
+ * <p>
+ * Cached entities are detached snapshots loaded outside the caller's persistence context and shared by all
+ * the callers and threads, so they must be treated as read-only. It's meant for lookup entities which rarely change.
+ * Repositories invalidate entities they modify before the transaction commits, so a concurrent reader may cache
+ * the old state again. Snapshots therefore expire after the time to live, which bounds how long they can be stale.
+ * <p>
+ * The cache is thread safe. It's split into segments by hash codes of the primary keys, each guarded by its own lock,
+ * so concurrent lookups of different keys mostly don't block each other. When the number of primary keys cached
+ * by a segment exceeds its share of the max size, its least recently used ones are evicted, so the eviction order
+ * is approximate across segments.
+ *
+ * @param <P> primary key type
+ * @param <T> entity type
+ */
+public class PkLookupCache<P, T> {
+
+    private static final Object NO_GRAPH = new Object();
+    private static final int MAX_DEFAULT_SEGMENT_COUNT = 16;
+    private static final int MIN_DEFAULT_SEGMENT_SIZE = 64;
+
+    private final int maxSize;
+    private final Duration timeToLive;
+    private final Segment<P, T>[] segments;
+    private final LongAdder hitCount = new LongAdder();
+    private final LongAdder missCount = new LongAdder();
+    private final LongAdder evictionCount = new LongAdder();
+
+    /**
+     * Creates a cache split into up to 16 segments, at least 64 keys each, so small caches have just one.
+     *
+     * @param maxSize    maximum number of cached primary keys.
+     * @param timeToLive how long a snapshot is served after it was loaded.
+     */
+    public PkLookupCache(int maxSize, Duration timeToLive) {
+        this(maxSize, timeToLive, Math.max(1, Math.min(MAX_DEFAULT_SEGMENT_COUNT, maxSize / MIN_DEFAULT_SEGMENT_SIZE)));
+    }
+
+    /**
+     * @param maxSize      maximum number of cached primary keys.
+     * @param timeToLive   how long a snapshot is served after it was loaded.
+     * @param segmentCount number of segments the primary keys are split into by their hash codes. Every segment has
+     *                     its own lock and it evicts its least recently used keys when it exceeds its share
+     *                     of the max size, so threads accessing different segments don't block each other.
+     */
+    @SuppressWarnings("unchecked")
+    public PkLookupCache(int maxSize, Duration timeToLive, int segmentCount) {
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("Max size must be 1 or higher: " + maxSize);
+        }
+        if (timeToLive.isNegative() || timeToLive.isZero()) {
+            throw new IllegalArgumentException("Time to live must be positive: " + timeToLive);
+        }
+        if (segmentCount < 1 || segmentCount > maxSize) {
+            throw new IllegalArgumentException("Segment count must be between 1 and the max size: " + segmentCount);
+        }
+        this.maxSize = maxSize;
+        this.timeToLive = timeToLive;
+        this.segments = (Segment<P, T>[]) new Segment<?, ?>[segmentCount];
+        for (int i = 0; i < segmentCount; i++) {
+            // The remainder of the max size is spread over the first segments.
+            final int segmentMaxSize = maxSize / segmentCount + (i < maxSize % segmentCount ? 1 : 0);
+            this.segments[i] = new Segment<>(segmentMaxSize, evictionCount);
+        }
+    }
+
+    T get(P pkValue, ResultGraph<T> resultGraph) {
+        final Segment<P, T> segment = segment(pkValue);
+        synchronized (segment) {
+            final Map<Object, Snapshot<T>> graphEntities = segment.entities.get(pkValue);
+            final Object graphKey = graphKey(resultGraph);
+            final Snapshot<T> snapshot = graphEntities == null ? null : graphEntities.get(graphKey);
+            if (snapshot == null || snapshot.isExpired(System.nanoTime())) {
+                if (snapshot != null) {
+                    graphEntities.remove(graphKey);
+                }
+                missCount.increment();
+                return null;
+            }
+            hitCount.increment();
+            return snapshot.entity;
+        }
+    }
+
+    void put(P pkValue, ResultGraph<T> resultGraph, T entity) {
+        final Snapshot<T> snapshot = new Snapshot<>(entity, System.nanoTime() + timeToLive.toNanos());
+        final Object graphKey = graphKey(resultGraph);
+        final Segment<P, T> segment = segment(pkValue);
+        synchronized (segment) {
+            segment.entities.computeIfAbsent(pkValue, pk -> new HashMap<>()).put(graphKey, snapshot);
+        }
+    }
+
+    /**
+     * Removes the entity with the given primary key cached for any result graph.
+     */
+    public void invalidate(P pkValue) {
+        final Segment<P, T> segment = segment(pkValue);
+        synchronized (segment) {
+            segment.entities.remove(pkValue);
+        }
+    }
+
+    public void clear() {
+        for (Segment<P, T> segment : segments) {
+            synchronized (segment) {
+                segment.entities.clear();
+            }
+        }
+    }
+
+    public long getHitCount() {
+        return hitCount.sum();
+    }
+
+    public long getMissCount() {
+        return missCount.sum();
+    }
+
+    public long getEvictionCount() {
+        return evictionCount.sum();
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public Duration getTimeToLive() {
+        return timeToLive;
+    }
+
+    /**
+     * @return number of cached primary keys.
+     */
+    public int size() {
+        int size = 0;
+        for (Segment<P, T> segment : segments) {
+            synchronized (segment) {
+                size += segment.entities.size();
+            }
+        }
+        return size;
+    }
+
+    public int getSegmentCount() {
+        return segments.length;
+    }
+
+    private Segment<P, T> segment(P pkValue) {
+        final int hash = pkValue.hashCode();
+        // Spreads higher bits, so sequential primary keys don't depend just on the lowest ones.
+        return segments[Math.floorMod(hash ^ (hash >>> 16), segments.length)];
+    }
+
+    private static Object graphKey(ResultGraph<?> resultGraph) {
+        if (resultGraph == null) {
+            return NO_GRAPH;
+        }
+        return List.of(
+                resultGraph.getType(),
+                JpaUtils.describeEntityGraph(resultGraph.getEntityGraph().getAttributeNodes()));
+    }
+
+    /**
+     * A part of the cache with its own lock (the segment itself) and its own LRU order.
+     */
+    private static final class Segment<P, T> {
+        private final Map<P, Map<Object, Snapshot<T>>> entities;
+
+        private Segment(int maxSize, LongAdder evictionCount) {
+            this.entities = new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<P, Map<Object, Snapshot<T>>> eldest) {
+                    final boolean evict = size() > maxSize;
+                    if (evict) {
+                        evictionCount.increment();
+                    }
+                    return evict;
+                }
+            };
+        }
+    }
+
+    private static final class Snapshot<T> {
+        private final T entity;
+        private final long expiresAtNanos;
+
+        private Snapshot(T entity, long expiresAtNanos) {
+            this.entity = entity;
+            this.expiresAtNanos = expiresAtNanos;
+        }
+
+        private boolean isExpired(long nowNanos) {
+            return nowNanos - expiresAtNanos >= 0;
+        }
+    }
+}
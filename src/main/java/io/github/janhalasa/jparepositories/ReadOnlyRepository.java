@@ -4,11 +4,18 @@ import io.github.janhalasa.jparepositories.model.ResultGraph;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.metamodel.SingularAttribute;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 public class ReadOnlyRepository<T, P> extends BasicRepository<T, P> {
 
+    private boolean readOnlyQueries;
+
     /**
      * This no-param constructor is here just for CDI. In your code, use the one with parameters.
      */
@@ -20,7 +27,29 @@ public class ReadOnlyRepository<T, P> extends BasicRepository<T, P> {
             EntityManager em,
             Class<T> entityClass,
             SingularAttribute<? super T, P> pkField) {
+        this(em, entityClass, pkField, false);
+    }
+
+    /**
+     * @param readOnlyQueries whether entity queries return read-only entities by default.
+     *                        See {@link BasicRepository#readOnlyQueries()}.
+     */
+    protected ReadOnlyRepository(
+            EntityManager em,
+            Class<T> entityClass,
+            SingularAttribute<? super T, P> pkField,
+            boolean readOnlyQueries) {
         super(em, entityClass, pkField);
+        this.readOnlyQueries = readOnlyQueries;
+    }
+
+    @Override
+    protected boolean readOnlyQueries() {
+        return readOnlyQueries;
+    }
+
+    public boolean existsByPk(P pkValue) {
+        return super.existsByPk(pkValue);
     }
 
     public Optional<T> getByPk(P pkValue) {
@@ -39,6 +68,22 @@ public class ReadOnlyRepository<T, P> extends BasicRepository<T, P> {
         return super.loadByPk(pkValue, resultGraph);
     }
 
+    public Map<P, T> getAllByPk(Collection<P> pkValues) {
+        return super.getAllByPk(pkValues);
+    }
+
+    public Map<P, T> getAllByPk(Collection<P> pkValues, ResultGraph<T> resultGraph) {
+        return super.getAllByPk(pkValues, resultGraph);
+    }
+
+    public List<T> loadAllByPk(Collection<P> pkValues) {
+        return super.loadAllByPk(pkValues);
+    }
+
+    public List<T> loadAllByPk(Collection<P> pkValues, ResultGraph<T> resultGraph) {
+        return super.loadAllByPk(pkValues, resultGraph);
+    }
+
     public List<T> findAll() {
         return super.findAll();
     }
@@ -46,4 +91,20 @@ public class ReadOnlyRepository<T, P> extends BasicRepository<T, P> {
     public List<T> findAll(ResultGraph<T> resultGraph) {
         return super.findAll(resultGraph);
     }
+
+    public Stream<T> findAllOrStream() {
+        return super.findAllOrStream();
+    }
+
+    public long parallelScanAll(int partitions, int chunkSize, Consumer<List<T>> chunkConsumer) {
+        return super.parallelScanAll(partitions, chunkSize, chunkConsumer);
+    }
+
+    public CompletableFuture<Optional<T>> getByPkAsync(P pkValue) {
+        return super.getByPkAsync(pkValue);
+    }
+
+    public CompletableFuture<List<T>> findAllAsync() {
+        return super.findAllAsync();
+    }
 }
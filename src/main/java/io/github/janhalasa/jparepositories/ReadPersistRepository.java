@@ -4,6 +4,10 @@ import jakarta.persistence.EntityManager;
 import jakarta.persistence.metamodel.SingularAttribute;
 import jakarta.transaction.Transactional;
 
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Consumer;
+
 public abstract class ReadPersistRepository<T, P> extends ReadOnlyRepository<T, P> {
 
     /**
@@ -24,4 +28,19 @@ public abstract class ReadPersistRepository<T, P> extends ReadOnlyRepository<T,
     public void persist(T entity) {
         super.persist(entity);
     }
+
+    @Transactional
+    public BatchResult persistAll(Collection<T> entities) {
+        return super.persistAll(entities, DEFAULT_BATCH_SIZE);
+    }
+
+    @Transactional
+    public BatchResult persistAll(Collection<T> entities, int batchSize) {
+        return super.persistAll(entities, batchSize);
+    }
+
+    @Transactional
+    public BatchResult persistAll(Collection<T> entities, int batchSize, Consumer<List<T>> batchConsumer) {
+        return super.persistAll(entities, batchSize, batchConsumer);
+    }
 }
@@ -1,10 +1,17 @@
 package io.github.janhalasa.jparepositories;
 
+import io.github.janhalasa.jparepositories.model.CountMode;
+
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 public class ResultPage<T> {
 
-    private final Long totalCount;
+    private final CompletableFuture<Long> totalCount;
+    private final boolean totalCountExact;
+    private final Boolean hasNext;
     private final Integer pageSize;
     private final Integer pageNumber;
     private final List<T> results;
@@ -14,14 +21,114 @@ public class ResultPage<T> {
             Integer pageNumber,
             Integer pageSize,
             List<T> results) {
+        this(CompletableFuture.completedFuture(totalCount), true, null, pageNumber, pageSize, results);
+    }
+
+    /**
+     * Creates a page with a total count which may still be being computed.
+     */
+    public ResultPage(
+            CompletableFuture<Long> totalCount,
+            Integer pageNumber,
+            Integer pageSize,
+            List<T> results) {
+        this(totalCount, true, null, pageNumber, pageSize, results);
+    }
+
+    private ResultPage(
+            CompletableFuture<Long> totalCount,
+            boolean totalCountExact,
+            Boolean hasNext,
+            Integer pageNumber,
+            Integer pageSize,
+            List<T> results) {
         this.totalCount = totalCount;
+        this.totalCountExact = totalCountExact;
+        this.hasNext = hasNext;
         this.pageNumber = pageNumber;
         this.pageSize = pageSize;
         this.results = results;
     }
 
+    /**
+     * Creates a page from results fetched with one extra row ({@code pageSize + 1}) used to find out whether
+     * there is a next page. The extra row is not part of the page. See {@link CountMode#ESTIMATE}.
+     * <p>
+     * The total count is exact only if this is the last page and it's not empty (or it's the first page).
+     * An empty page past the end tells nothing about the preceding pages, so its total count is a lower bound of 0.
+     */
+    public static <T> ResultPage<T> estimated(
+            Integer pageNumber,
+            Integer pageSize,
+            List<T> resultsWithProbe) {
+        final boolean hasNext = resultsWithProbe.size() > pageSize;
+        final List<T> results = hasNext
+                ? new ArrayList<>(resultsWithProbe.subList(0, pageSize))
+                : resultsWithProbe;
+        final long countLowerBound = (long) (pageNumber - 1) * pageSize + resultsWithProbe.size();
+        final boolean countExact = !hasNext && (!resultsWithProbe.isEmpty() || pageNumber == 1);
+        return new ResultPage<>(
+                CompletableFuture.completedFuture(countExact ? countLowerBound : 0L),
+                countExact,
+                hasNext,
+                pageNumber,
+                pageSize,
+                results);
+    }
+
+    /**
+     * Creates a page without any information about the total count. See {@link CountMode#NONE}.
+     */
+    public static <T> ResultPage<T> withoutCount(
+            Integer pageNumber,
+            Integer pageSize,
+            List<T> results) {
+        return new ResultPage<>(null, false, null, pageNumber, pageSize, results);
+    }
+
+    /**
+     * Returns the total count, waiting for it if it's still being computed.
+     *
+     * @return the total count or {@code null} if it wasn't computed at all ({@link CountMode#NONE}).
+     *         Check {@link #isTotalCountExact()} to find out whether it's an exact number or just a lower bound.
+     */
     public Long getTotalCount() {
-        return totalCount;
+        if (totalCount == null) {
+            return null;
+        }
+        try {
+            return totalCount.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * @return a future of the total count, completed with {@code null} if the count wasn't computed at all.
+     */
+    public CompletableFuture<Long> getTotalCountFuture() {
+        return totalCount == null ? CompletableFuture.completedFuture(null) : totalCount;
+    }
+
+    public boolean isTotalCountExact() {
+        return totalCountExact;
+    }
+
+    /**
+     * @return whether there is a page following this one. If the total count wasn't computed at all,
+     *         a full page is considered to have a next one.
+     */
+    public boolean hasNext() {
+        if (hasNext != null) {
+            return hasNext;
+        }
+        if (totalCount == null) {
+            return results.size() >= pageSize;
+        }
+        return (long) pageNumber * pageSize < getTotalCount();
     }
 
     public Integer getPageSize() {
@@ -0,0 +1,33 @@
+package io.github.janhalasa.jparepositories;
+
+import jakarta.persistence.PersistenceException;
+
+/**
+ * Thrown when a query returns more results than the maximum result size allowed by the repository
+ * (see {@link BasicRepository#maxResultSize()}) or {@code Select.maxResultSize(int)}.
+ */
+public class ResultSizeExceededException extends PersistenceException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final String queryShapeId;
+    private final int maxResultSize;
+
+    public ResultSizeExceededException(String queryShapeId, int maxResultSize) {
+        super("Query " + queryShapeId + " returned more than " + maxResultSize + " results."
+                + " Add a limit, use pagination or stream the results.");
+        this.queryShapeId = queryShapeId;
+        this.maxResultSize = maxResultSize;
+    }
+
+    /**
+     * @return identification of the query. See {@link io.github.janhalasa.jparepositories.metrics.QueryMetric#getQueryShapeId()}.
+     */
+    public String getQueryShapeId() {
+        return queryShapeId;
+    }
+
+    public int getMaxResultSize() {
+        return maxResultSize;
+    }
+}
@@ -1,11 +1,18 @@
 package io.github.janhalasa.jparepositories;
 
+import io.github.janhalasa.jparepositories.model.PredicateBuilder;
 import io.github.janhalasa.jparepositories.model.ResultGraph;
+import io.github.janhalasa.jparepositories.model.UpdateSetter;
 import io.github.janhalasa.jparepositories.model.VersionAware;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.OptimisticLockException;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Path;
+import jakarta.persistence.criteria.Root;
 import jakarta.persistence.metamodel.SingularAttribute;
 
+import java.util.List;
 import java.util.Objects;
 
 public abstract class VersionAwareCrudRepository<T extends VersionAware, P> extends CrudRepository<T, P> {
@@ -32,6 +39,46 @@ public abstract class VersionAwareCrudRepository<T extends VersionAware, P> exte
         return this.loadByPkAndVersion(pk, expectedVersion, resultGraph);
     }
 
+    /**
+     * Updates all entities matching the predicate using a single UPDATE statement. See
+     * {@link BasicRepository#updateWhere(PredicateBuilder, UpdateSetter)}.
+     *
+     * @param incrementVersion whether to increment the version attribute of the updated entities, so that concurrent
+     *                         modifications of entities loaded before the update fail on optimistic locking.
+     */
+    protected int updateWhere(
+            PredicateBuilder<T> predicateBuilder,
+            UpdateSetter<T> updateSetter,
+            boolean incrementVersion) {
+        if (!incrementVersion) {
+            return super.updateWhere(predicateBuilder, updateSetter);
+        }
+        final SingularAttribute<? super T, Integer> versionAttribute = em().getMetamodel()
+                .entity(entityClass())
+                .getVersion(Integer.class);
+        return super.updateWhere(predicateBuilder, (cb, root, update) -> {
+            updateSetter.build(cb, root, update);
+            final Path<Integer> version = root.get(versionAttribute);
+            update.set(version, cb.sum(version, 1));
+        });
+    }
+
+    /**
+     * Revalidates an entity cached in the {@link PkLookupCache} by a query selecting just its current version,
+     * which is cheaper than loading the whole entity again. Override it to return {@code true} for entities
+     * which never change.
+     */
+    @Override
+    protected boolean isCachedEntityCurrent(P pk, T cachedEntity) {
+        final CriteriaBuilder cb = em().getCriteriaBuilder();
+        final CriteriaQuery<Integer> q = cb.createQuery(Integer.class);
+        final Root<T> root = q.from(entityClass());
+        q.select(root.get(em().getMetamodel().entity(entityClass()).getVersion(Integer.class)))
+                .where(cb.equal(root.get(pkField()), pk));
+        final List<Integer> versions = em().createQuery(q).getResultList();
+        return !versions.isEmpty() && Objects.equals(versions.get(0), cachedEntity.getVersion());
+    }
+
     private T loadByPkAndVersion(P pk, Integer expectedVersion, ResultGraph<T> resultGraph) {
         Objects.requireNonNull(pk);
         Objects.requireNonNull(expectedVersion);
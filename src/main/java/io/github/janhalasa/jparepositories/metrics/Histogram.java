@@ -0,0 +1,97 @@
+package io.github.janhalasa.jparepositories.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A lock-free histogram of non-negative long values, such as durations in nanoseconds. Values are counted
+ * in buckets of exponentially growing size - every power of two is split into 8 buckets, so a percentile
+ * is off by at most 12.5 %. Memory consumption is constant (a few kilobytes) regardless of the number of values.
+ */
+public class Histogram {
+
+    private static final int SUB_BUCKET_BITS = 3;
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKET_COUNT = (Long.SIZE - SUB_BUCKET_BITS) * SUB_BUCKET_COUNT;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_COUNT);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+    private final AtomicLong max = new AtomicLong();
+
+    public void record(long value) {
+        if (value < 0) {
+            throw new IllegalArgumentException("Value must not be negative: " + value);
+        }
+        buckets.incrementAndGet(bucketIndex(value));
+        count.increment();
+        sum.add(value);
+        max.accumulateAndGet(value, Math::max);
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    public long getSum() {
+        return sum.sum();
+    }
+
+    public long getMax() {
+        return max.get();
+    }
+
+    public double getMean() {
+        final long valueCount = getCount();
+        return valueCount == 0 ? 0 : (double) getSum() / valueCount;
+    }
+
+    /**
+     * Returns an upper estimate of the value at the given percentile, for example {@code 99.9}.
+     * Values recorded concurrently may or may not be included.
+     */
+    public long getValueAtPercentile(double percentile) {
+        if (percentile < 0 || percentile > 100) {
+            throw new IllegalArgumentException("Percentile must be between 0 and 100: " + percentile);
+        }
+        final long valueCount = getCount();
+        if (valueCount == 0) {
+            return 0;
+        }
+        final long rank = Math.max(1, (long) Math.ceil(percentile / 100 * valueCount));
+        long cumulativeCount = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            cumulativeCount += buckets.get(i);
+            if (cumulativeCount >= rank) {
+                return Math.min(bucketUpperBound(i), getMax());
+            }
+        }
+        return getMax();
+    }
+
+    static int bucketIndex(long value) {
+        if (value < SUB_BUCKET_COUNT) {
+            return (int) value;
+        }
+        final int exponent = Long.SIZE - 1 - Long.numberOfLeadingZeros(value);
+        final int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKET_COUNT - 1);
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKET_COUNT + subBucket;
+    }
+
+    static long bucketUpperBound(int index) {
+        if (index < SUB_BUCKET_COUNT) {
+            return index;
+        }
+        final int exponent = index / SUB_BUCKET_COUNT + SUB_BUCKET_BITS - 1;
+        final long subBucket = index % SUB_BUCKET_COUNT;
+        final long lowerBound = (SUB_BUCKET_COUNT + subBucket) << (exponent - SUB_BUCKET_BITS);
+        return lowerBound + (1L << (exponent - SUB_BUCKET_BITS)) - 1;
+    }
+
+    @Override
+    public String toString() {
+        return "Histogram{count=" + getCount() + ", mean=" + getMean() + ", p50=" + getValueAtPercentile(50)
+                + ", p99=" + getValueAtPercentile(99) + ", max=" + getMax() + '}';
+    }
+}
@@ -0,0 +1,60 @@
+package io.github.janhalasa.jparepositories.metrics;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Collects {@link QueryStatistics} (histograms of build time, execution time and result size) per query shape
+ * in memory. Recording doesn't lock, so it can be shared by all repositories of an application. The statistics
+ * can be exported to a monitoring system periodically.
+ */
+public class HistogramRepositoryMetrics implements RepositoryMetrics {
+
+    private final Duration slowQueryThreshold;
+    private final Map<String, QueryStatistics> statistics = new ConcurrentHashMap<>();
+
+    public HistogramRepositoryMetrics() {
+        this(null);
+    }
+
+    /**
+     * @param slowQueryThreshold queries taking longer are logged, {@code null} turns the logging off.
+     */
+    public HistogramRepositoryMetrics(Duration slowQueryThreshold) {
+        this.slowQueryThreshold = slowQueryThreshold;
+    }
+
+    @Override
+    public void record(QueryMetric metric) {
+        QueryStatistics queryStatistics = statistics.get(metric.getQueryShapeId());
+        if (queryStatistics == null) {
+            queryStatistics = statistics.computeIfAbsent(metric.getQueryShapeId(), shapeId -> new QueryStatistics());
+        }
+        queryStatistics.record(metric);
+    }
+
+    @Override
+    public Duration getSlowQueryThreshold() {
+        return slowQueryThreshold;
+    }
+
+    /**
+     * @return statistics of the query or {@code null} if it hasn't been executed.
+     */
+    public QueryStatistics getStatistics(String queryShapeId) {
+        return statistics.get(queryShapeId);
+    }
+
+    /**
+     * @return statistics of all executed queries by their shape IDs.
+     */
+    public Map<String, QueryStatistics> getStatistics() {
+        return Collections.unmodifiableMap(statistics);
+    }
+
+    public void clear() {
+        statistics.clear();
+    }
+}
@@ -0,0 +1,104 @@
+package io.github.janhalasa.jparepositories.metrics;
+
+import java.time.Duration;
+
+/**
+ * Metrics of a single executed query.
+ */
+public class QueryMetric {
+
+    private final Class<?> entityClass;
+    private final String operation;
+    private final String queryShapeId;
+    private final Duration buildTime;
+    private final Duration executionTime;
+    private final long resultSize;
+    private final Throwable failure;
+
+    public QueryMetric(
+            Class<?> entityClass,
+            String operation,
+            String queryShapeId,
+            Duration buildTime,
+            Duration executionTime,
+            long resultSize) {
+        this(entityClass, operation, queryShapeId, buildTime, executionTime, resultSize, null);
+    }
+
+    public QueryMetric(
+            Class<?> entityClass,
+            String operation,
+            String queryShapeId,
+            Duration buildTime,
+            Duration executionTime,
+            long resultSize,
+            Throwable failure) {
+        this.entityClass = entityClass;
+        this.operation = operation;
+        this.queryShapeId = queryShapeId;
+        this.buildTime = buildTime;
+        this.executionTime = executionTime;
+        this.resultSize = resultSize;
+        this.failure = failure;
+    }
+
+    public Class<?> getEntityClass() {
+        return entityClass;
+    }
+
+    /**
+     * @return name of the operation, such as {@code list}, {@code count} or {@code pageWhere}.
+     */
+    public String getOperation() {
+        return operation;
+    }
+
+    /**
+     * @return identifier of the query, which is the same for all executions of the query. It consists of the entity
+     *         name, the operation and the code location which called the library,
+     *         such as {@code Vendor.list@VendorRepository.findByName:42}.
+     */
+    public String getQueryShapeId() {
+        return queryShapeId;
+    }
+
+    /**
+     * @return time spent by building the query (criteria query, entity graph, parameters) before its execution.
+     */
+    public Duration getBuildTime() {
+        return buildTime;
+    }
+
+    /**
+     * @return time spent by executing the query and reading its results.
+     */
+    public Duration getExecutionTime() {
+        return executionTime;
+    }
+
+    /**
+     * @return number of results. For counts it's the count itself and for updates the number of affected rows.
+     */
+    public long getResultSize() {
+        return resultSize;
+    }
+
+    /**
+     * @return the exception thrown by the query or {@code null} if it succeeded. The times of a failed query
+     *         are measured until the failure.
+     */
+    public Throwable getFailure() {
+        return failure;
+    }
+
+    public boolean isFailed() {
+        return failure != null;
+    }
+
+    @Override
+    public String toString() {
+        return "QueryMetric{queryShapeId=" + queryShapeId + ", buildTime=" + buildTime
+                + ", executionTime=" + executionTime + ", resultSize=" + resultSize
+                + (failure == null ? "" : ", failure=" + failure) + '}';
+    }
+}
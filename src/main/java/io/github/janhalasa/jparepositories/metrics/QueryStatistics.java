@@ -0,0 +1,52 @@
+package io.github.janhalasa.jparepositories.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Histograms of executions of a query collected by {@link HistogramRepositoryMetrics}.
+ */
+public class QueryStatistics {
+
+    private final Histogram buildTimeNanos = new Histogram();
+    private final Histogram executionTimeNanos = new Histogram();
+    private final Histogram resultSize = new Histogram();
+    private final LongAdder failureCount = new LongAdder();
+
+    void record(QueryMetric metric) {
+        buildTimeNanos.record(metric.getBuildTime().toNanos());
+        executionTimeNanos.record(metric.getExecutionTime().toNanos());
+        resultSize.record(Math.max(0, metric.getResultSize()));
+        if (metric.isFailed()) {
+            failureCount.increment();
+        }
+    }
+
+    /**
+     * @return number of executions including the failed ones.
+     */
+    public long getExecutionCount() {
+        return executionTimeNanos.getCount();
+    }
+
+    public long getFailureCount() {
+        return failureCount.sum();
+    }
+
+    public Histogram getBuildTimeNanos() {
+        return buildTimeNanos;
+    }
+
+    public Histogram getExecutionTimeNanos() {
+        return executionTimeNanos;
+    }
+
+    public Histogram getResultSize() {
+        return resultSize;
+    }
+
+    @Override
+    public String toString() {
+        return "QueryStatistics{buildTimeNanos=" + buildTimeNanos + ", executionTimeNanos=" + executionTimeNanos
+                + ", resultSize=" + resultSize + ", failureCount=" + failureCount.sum() + '}';
+    }
+}
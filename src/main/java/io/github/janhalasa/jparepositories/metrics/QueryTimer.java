@@ -0,0 +1,205 @@
+package io.github.janhalasa.jparepositories.metrics;
+
+import jakarta.persistence.Parameter;
+import jakarta.persistence.Query;
+import org.slf4j.Logger;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Measures a query execution and reports it to {@link RepositoryMetrics}. It's used by the repositories
+ * and {@code Select}:
+ * <pre>{@code
+ * final QueryTimer timer = QueryTimer.start(metrics, LOGGER, entityClass, "list");
+ * final TypedQuery<T> query = createQuery();
+ * timer.built();
+ * final List<T> results;
+ * try {
+ *     results = query.getResultList();
+ * } catch (RuntimeException e) {
+ *     throw timer.failed(e, query);
+ * }
+ * timer.finished(results.size(), query);
+ * }</pre>
+ * If there are no metrics, it doesn't measure anything.
+ */
+public class QueryTimer {
+
+    private static final QueryTimer DISABLED = new QueryTimer(null, null, null, null, null);
+
+    private static final String LIBRARY_PACKAGE = QueryTimer.class.getPackageName()
+            .substring(0, QueryTimer.class.getPackageName().lastIndexOf('.'));
+    private static final Set<String> LIBRARY_PACKAGES = Set.of(
+            LIBRARY_PACKAGE,
+            LIBRARY_PACKAGE + ".metrics",
+            LIBRARY_PACKAGE + ".model",
+            LIBRARY_PACKAGE + ".select");
+
+    private final RepositoryMetrics metrics;
+    private final Logger logger;
+    private final Class<?> entityClass;
+    private final String operation;
+    private final String queryShapeId;
+    private final long startNanos;
+    private long builtNanos;
+
+    private QueryTimer(
+            RepositoryMetrics metrics,
+            Logger logger,
+            Class<?> entityClass,
+            String operation,
+            String callSite) {
+        this.metrics = metrics;
+        this.logger = logger;
+        this.entityClass = entityClass;
+        this.operation = operation;
+        this.queryShapeId = metrics == null
+                ? null
+                : queryShapeId(entityClass, operation, callSite == null ? callSite() : callSite);
+        this.startNanos = metrics == null ? 0 : System.nanoTime();
+        this.builtNanos = startNanos;
+    }
+
+    /**
+     * Starts measuring a query execution, which begins by building the query.
+     *
+     * @param metrics     receiver of the measured metric, {@code null} if the query shouldn't be measured.
+     * @param logger      logger of slow queries.
+     * @param entityClass the queried entity class.
+     * @param operation   name of the operation, such as {@code list}.
+     */
+    public static QueryTimer start(RepositoryMetrics metrics, Logger logger, Class<?> entityClass, String operation) {
+        return start(metrics, logger, entityClass, operation, null);
+    }
+
+    /**
+     * Starts measuring a query execution called from the given call site. It's meant for queries executed
+     * asynchronously, where the calling code is not on the stack anymore. See {@link #callSite()}.
+     */
+    public static QueryTimer start(
+            RepositoryMetrics metrics,
+            Logger logger,
+            Class<?> entityClass,
+            String operation,
+            String callSite) {
+        return metrics == null ? DISABLED : new QueryTimer(metrics, logger, entityClass, operation, callSite);
+    }
+
+    /**
+     * Marks the end of building the query and the start of its execution.
+     */
+    public void built() {
+        if (metrics != null) {
+            builtNanos = System.nanoTime();
+        }
+    }
+
+    /**
+     * Reports the finished execution.
+     *
+     * @param query the executed query used to log parameters of a slow query, may be {@code null}.
+     */
+    public void finished(long resultSize, Query query) {
+        report(resultSize, query, null);
+    }
+
+    /**
+     * Reports the failed execution (or building) of the query, so failed queries are part of the metrics
+     * and slow failing queries are logged too. A query is usually slow to fail because of a timeout.
+     *
+     * @param query the query used to log parameters of a slow query, may be {@code null}.
+     * @return the failure to be rethrown: {@code throw timer.failed(e, query);}
+     */
+    public <E extends Throwable> E failed(E failure, Query query) {
+        report(0, query, failure);
+        return failure;
+    }
+
+    private void report(long resultSize, Query query, Throwable failure) {
+        if (metrics == null) {
+            return;
+        }
+        final long finishedNanos = System.nanoTime();
+        final Duration buildTime = Duration.ofNanos(builtNanos - startNanos);
+        final Duration executionTime = Duration.ofNanos(finishedNanos - builtNanos);
+        metrics.record(new QueryMetric(
+                entityClass, operation, queryShapeId, buildTime, executionTime, resultSize, failure));
+
+        final Duration slowQueryThreshold = metrics.getSlowQueryThreshold();
+        if (slowQueryThreshold != null && buildTime.plus(executionTime).compareTo(slowQueryThreshold) > 0) {
+            if (failure == null) {
+                logger.warn(
+                        "Slow query {} took {} ms (built in {} ms) with {} results, parameters: {}",
+                        queryShapeId,
+                        buildTime.plus(executionTime).toMillis(),
+                        buildTime.toMillis(),
+                        resultSize,
+                        query == null ? Map.of() : describeParameters(query));
+            } else {
+                logger.warn(
+                        "Slow query {} failed after {} ms (built in {} ms) with {}, parameters: {}",
+                        queryShapeId,
+                        buildTime.plus(executionTime).toMillis(),
+                        buildTime.toMillis(),
+                        failure.toString(),
+                        query == null ? Map.of() : describeParameters(query));
+            }
+        }
+    }
+
+    /**
+     * Returns the query shape ID of a query executed by the calling code. See {@link QueryMetric#getQueryShapeId()}.
+     * The query shape is identified by the code which called the library, so it's stable across application
+     * restarts (unlike names of lambda classes) and it points to the repository method to optimize.
+     */
+    public static String queryShapeId(Class<?> entityClass, String operation) {
+        return queryShapeId(entityClass, operation, callSite());
+    }
+
+    private static String queryShapeId(Class<?> entityClass, String operation, String callSite) {
+        return entityClass.getSimpleName() + "." + operation + "@" + callSite;
+    }
+
+    /**
+     * @return the code location which called the library, such as {@code VendorRepository.findByName:42}.
+     */
+    public static String callSite() {
+        return StackWalker.getInstance()
+                .walk(frames -> frames
+                        .filter(frame -> !isLibraryOrJdkClass(frame.getClassName()))
+                        .findFirst())
+                .map(frame -> simpleName(frame.getClassName()) + "." + frame.getMethodName()
+                        + ":" + frame.getLineNumber())
+                .orElse("unknown");
+    }
+
+    private static boolean isLibraryOrJdkClass(String className) {
+        final int packageEnd = className.lastIndexOf('.');
+        final String packageName = packageEnd < 0 ? "" : className.substring(0, packageEnd);
+        return LIBRARY_PACKAGES.contains(packageName)
+                || className.startsWith("java.")
+                || className.startsWith("jdk.");
+    }
+
+    private static String simpleName(String className) {
+        return className.substring(className.lastIndexOf('.') + 1);
+    }
+
+    private static Map<String, Object> describeParameters(Query query) {
+        final Map<String, Object> parameters = new LinkedHashMap<>();
+        try {
+            for (Parameter<?> parameter : query.getParameters()) {
+                final String name = Optional.ofNullable(parameter.getName())
+                        .orElseGet(() -> String.valueOf(parameter.getPosition()));
+                parameters.put(name, query.isBound(parameter) ? query.getParameterValue(parameter) : "<unbound>");
+            }
+        } catch (RuntimeException e) {
+            // Some providers don't expose parameters of executed queries. It's just for logging.
+        }
+        return parameters;
+    }
+}
@@ -0,0 +1,24 @@
+package io.github.janhalasa.jparepositories.metrics;
+
+import java.time.Duration;
+
+/**
+ * Receives metrics of queries executed by the repositories and {@code Select}. It's called after every terminal
+ * operation ({@code list}, {@code single}, {@code page}, {@code count}, {@code findWhere}, {@code removeWhere}, ...)
+ * on the thread which executed it, so implementations have to be thread safe and fast.
+ * <p>
+ * See {@link HistogramRepositoryMetrics} for a default implementation.
+ */
+public interface RepositoryMetrics {
+
+    void record(QueryMetric metric);
+
+    /**
+     * Queries taking longer (including the build time) are logged as a warning with their parameters.
+     *
+     * @return the threshold or {@code null} if slow queries should not be logged.
+     */
+    default Duration getSlowQueryThreshold() {
+        return null;
+    }
+}
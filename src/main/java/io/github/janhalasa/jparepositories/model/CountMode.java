@@ -0,0 +1,30 @@
+package io.github.janhalasa.jparepositories.model;
+
+/**
+ * Defines how the total count of a paged query is obtained.
+ */
+public enum CountMode {
+
+    /**
+     * A count query is executed after the page is fetched. The total count is always exact.
+     */
+    EXACT,
+
+    /**
+     * A count query is executed concurrently with the page fetch on a separate {@code EntityManager}.
+     * The total count is exact, but it's computed outside the current transaction, so it doesn't see
+     * uncommitted changes.
+     */
+    PARALLEL,
+
+    /**
+     * No count query is executed. One extra row is fetched to find out whether there is a next page.
+     * The total count is exact only on the last page, otherwise it's a lower bound.
+     */
+    ESTIMATE,
+
+    /**
+     * Neither a count query is executed, nor an extra row fetched.
+     */
+    NONE
+}
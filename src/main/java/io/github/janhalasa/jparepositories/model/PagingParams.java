@@ -5,6 +5,7 @@ public class PagingParams<T> {
     private final QueryParams<T> queryParams;
     private final int pageNumber;
     private final int pageSize;
+    private final CountMode countMode;
 
     public PagingParams(
             QueryBuilder<T> queryBuilder,
@@ -12,6 +13,16 @@ public class PagingParams<T> {
             int pageSize,
             ResultGraph<T> resultGraph,
             boolean distinct) {
+        this(queryBuilder, pageNumber, pageSize, resultGraph, distinct, CountMode.EXACT);
+    }
+
+    public PagingParams(
+            QueryBuilder<T> queryBuilder,
+            int pageNumber,
+            int pageSize,
+            ResultGraph<T> resultGraph,
+            boolean distinct,
+            CountMode countMode) {
 
         if (queryBuilder == null) {
             throw new IllegalArgumentException("Pagination requires predicateAndOrderBuilder or queryBuilder" +
@@ -24,6 +35,7 @@ public class PagingParams<T> {
                 distinct);
         this.pageNumber = pageNumber;
         this.pageSize = pageSize;
+        this.countMode = countMode;
     }
 
     public PagingParams(
@@ -31,13 +43,24 @@ public class PagingParams<T> {
             int pageNumber,
             int pageSize,
             ResultGraph<T> resultGraph,
-            boolean distinct) {
+            boolean distinct,
+            CountMode countMode) {
         this(
                 predicateAndOrderBuilder == null ? null : predicateAndOrderBuilder.toQueryBuilder(true),
                 pageNumber,
                 pageSize,
                 resultGraph,
-                distinct);
+                distinct,
+                countMode);
+    }
+
+    public PagingParams(
+            PredicateAndOrderBuilder<T> predicateAndOrderBuilder,
+            int pageNumber,
+            int pageSize,
+            ResultGraph<T> resultGraph,
+            boolean distinct) {
+        this(predicateAndOrderBuilder, pageNumber, pageSize, resultGraph, distinct, CountMode.EXACT);
     }
 
     public PagingParams(
@@ -63,6 +86,10 @@ public class PagingParams<T> {
         return pageSize;
     }
 
+    public CountMode getCountMode() {
+        return countMode;
+    }
+
     public QueryParams<T> getQueryParams() {
         return queryParams;
     }
@@ -0,0 +1,13 @@
+package io.github.janhalasa.jparepositories.model;
+
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+
+/**
+ * A {@link PredicateBuilder} which passes values to the query as bind parameters created by {@link QueryParameters}.
+ */
+public interface ParameterizedPredicateBuilder<T> {
+
+	Predicate build(CriteriaBuilder cb, Root<T> root, QueryParameters params);
+}
@@ -0,0 +1,28 @@
+package io.github.janhalasa.jparepositories.model;
+
+import jakarta.persistence.criteria.ParameterExpression;
+
+/**
+ * Creates query parameters from within query building lambdas. Values are always passed to the database
+ * as bind parameters and never inlined into the SQL, so the SQL stays the same for different values
+ * and both the JPA provider's query plan cache and the database statement cache can reuse it.
+ */
+public interface QueryParameters {
+
+    /**
+     * Creates a parameter bound to the given value. Its type is derived from the value,
+     * so it must not be {@code null}.
+     */
+    <V> ParameterExpression<V> param(String name, V value);
+
+    /**
+     * Creates a parameter of the given type bound to the given value, which may be {@code null}.
+     */
+    <V> ParameterExpression<V> param(String name, Class<V> type, V value);
+
+    /**
+     * Creates a parameter whose value is bound outside the lambda (e.g. by {@code Select.parameter(name, value)}).
+     * Lambdas using only such parameters don't capture any values, so they can be cached as compiled queries.
+     */
+    <V> ParameterExpression<V> param(String name, Class<V> type);
+}
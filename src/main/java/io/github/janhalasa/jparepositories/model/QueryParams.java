@@ -5,18 +5,36 @@ public class QueryParams<T> {
     private final QueryBuilder<T> queryBuilder;
     private final ResultGraph<T> resultGraph;
     private final boolean distinct;
+    private final boolean readOnly;
 
-    public QueryParams(QueryBuilder<T> queryBuilder, ResultGraph<T> resultGraph, boolean distinct) {
+    /**
+     * @param readOnly whether the query returns read-only entities, which are not dirty checked.
+     */
+    public QueryParams(QueryBuilder<T> queryBuilder, ResultGraph<T> resultGraph, boolean distinct, boolean readOnly) {
         this.queryBuilder = queryBuilder;
         this.distinct = distinct;
         this.resultGraph = resultGraph;
+        this.readOnly = readOnly;
     }
 
-    public QueryParams(PredicateAndOrderBuilder<T> predicateAndOrderBuilder, ResultGraph<T> resultGraph, boolean distinct) {
+    public QueryParams(QueryBuilder<T> queryBuilder, ResultGraph<T> resultGraph, boolean distinct) {
+        this(queryBuilder, resultGraph, distinct, false);
+    }
+
+    public QueryParams(
+            PredicateAndOrderBuilder<T> predicateAndOrderBuilder,
+            ResultGraph<T> resultGraph,
+            boolean distinct,
+            boolean readOnly) {
         this(
                 predicateAndOrderBuilder == null ? null : predicateAndOrderBuilder.toQueryBuilder(false),
                 resultGraph,
-                distinct);
+                distinct,
+                readOnly);
+    }
+
+    public QueryParams(PredicateAndOrderBuilder<T> predicateAndOrderBuilder, ResultGraph<T> resultGraph, boolean distinct) {
+        this(predicateAndOrderBuilder, resultGraph, distinct, false);
     }
 
     public QueryParams(PredicateAndOrderBuilder<T> predicateAndOrderBuilder, ResultGraph<T> resultGraph) {
@@ -27,6 +45,14 @@ public class QueryParams<T> {
         this(predicateAndOrderBuilder, null, false);
     }
 
+    public QueryParams(
+            PredicateBuilder<T> predicateBuilder,
+            ResultGraph<T> resultGraph,
+            boolean distinct,
+            boolean readOnly) {
+        this(PredicateAndOrderBuilder.of(predicateBuilder), resultGraph, distinct, readOnly);
+    }
+
     public QueryParams(PredicateBuilder<T> predicateBuilder, ResultGraph<T> resultGraph, boolean distinct) {
         this(PredicateAndOrderBuilder.of(predicateBuilder), resultGraph, distinct);
     }
@@ -43,6 +69,10 @@ public class QueryParams<T> {
         return distinct;
     }
 
+    public boolean isReadOnly() {
+        return readOnly;
+    }
+
     public ResultGraph<T> getResultGraph() {
         return resultGraph;
     }
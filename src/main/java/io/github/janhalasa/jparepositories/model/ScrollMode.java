@@ -0,0 +1,20 @@
+package io.github.janhalasa.jparepositories.model;
+
+/**
+ * Defines how results of a query are read in batches by {@code Select.scroll}.
+ */
+public enum ScrollMode {
+
+    /**
+     * One query is executed and the results are read from a forward-only database cursor kept open across batches.
+     * It's the cheapest way to read a very large result, but it holds a database connection (and on some databases
+     * a transaction) for the whole time. If the JPA provider doesn't stream query results, {@link #KEYSET} is used.
+     */
+    CURSOR,
+
+    /**
+     * Every batch is read by a separate query using keyset pagination, so no database resources are held between
+     * batches. Every batch costs the same, but the results may change between batches.
+     */
+    KEYSET
+}
@@ -0,0 +1,14 @@
+package io.github.janhalasa.jparepositories.model;
+
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaUpdate;
+import jakarta.persistence.criteria.Root;
+
+/**
+ * One method interface meant to be used by lambdas setting new attribute values of a bulk update
+ * using typed {@code CriteriaUpdate.set(SingularAttribute, value)} calls.
+ */
+public interface UpdateSetter<T> {
+
+	void build(CriteriaBuilder cb, Root<T> root, CriteriaUpdate<T> update);
+}
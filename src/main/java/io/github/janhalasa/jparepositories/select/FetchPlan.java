@@ -0,0 +1,149 @@
+package io.github.janhalasa.jparepositories.select;
+
+import io.github.janhalasa.jparepositories.EntityGraphRegistry;
+import io.github.janhalasa.jparepositories.JpaUtils;
+import io.github.janhalasa.jparepositories.model.Fetcher;
+import io.github.janhalasa.jparepositories.model.ResultGraph;
+import jakarta.persistence.AttributeNode;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.Subgraph;
+import jakarta.persistence.criteria.Fetch;
+import jakarta.persistence.criteria.FetchParent;
+import jakarta.persistence.criteria.JoinType;
+import jakarta.persistence.criteria.Root;
+import jakarta.persistence.metamodel.Attribute;
+
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Merges the fetching configuration of a {@link Select} - a result graph, attributes to fetch and a {@link Fetcher} -
+ * into a single entity graph, so all the associations are loaded by the query itself. Merged graphs are obtained
+ * from the {@link EntityGraphRegistry}, so they are built once per combination of attribute paths.
+ * <p>
+ * A {@code Fetcher} is merged if it creates only left join fetches. Inner join fetches filter the results,
+ * which an entity graph can't do, so such a {@code Fetcher} is applied to the criteria query as it is and
+ * it can't be combined with an entity graph.
+ *
+ * @param <T> entity type
+ */
+final class FetchPlan<T> {
+
+    private static final FetchPlan<?> EMPTY = new FetchPlan<>(null, false);
+
+    private final ResultGraph<T> resultGraph;
+    private final boolean fetcherApplied;
+
+    private FetchPlan(ResultGraph<T> resultGraph, boolean fetcherApplied) {
+        this.resultGraph = resultGraph;
+        this.fetcherApplied = fetcherApplied;
+    }
+
+    /**
+     * @param resultGraph      result graph set by {@code fetch(ResultGraph)} or {@code null}.
+     * @param fetcher          fetcher set by {@code fetch(Fetcher)} or {@code null}.
+     * @param nodesToFetch     attributes set by {@code fetchOnly} or {@code fetchExtra} or {@code null}.
+     * @param nodesToFetchOnly whether the attributes were set by {@code fetchOnly}.
+     * @throws IllegalStateException if the fetching configuration is contradictory.
+     */
+    @SuppressWarnings("unchecked")
+    static <T> FetchPlan<T> of(
+            EntityManager em,
+            Class<T> entityClass,
+            ResultGraph<T> resultGraph,
+            Fetcher<T> fetcher,
+            List<Attribute<T, ?>> nodesToFetch,
+            boolean nodesToFetchOnly) {
+        final Set<String> fetcherPaths = fetcher == null ? null : leftJoinFetchPaths(em, entityClass, fetcher);
+        final boolean fetcherMerged = fetcher != null && fetcherPaths != null;
+        if (fetcher != null && !fetcherMerged && (resultGraph != null || nodesToFetch != null)) {
+            throw new IllegalStateException("Conflicting fetch strategies of " + entityClass.getSimpleName()
+                    + ": a Fetcher creating inner join fetches can't be combined with an entity graph");
+        }
+
+        final String nodesType = nodesToFetch == null
+                ? null
+                : nodesToFetchOnly
+                        ? JpaUtils.JAKARTA_PERSISTENCE_FETCHGRAPH
+                        : JpaUtils.JAKARTA_PERSISTENCE_LOADGRAPH;
+        if (resultGraph != null && nodesType != null && !resultGraph.getType().equals(nodesType)) {
+            throw new IllegalStateException("Conflicting fetch strategies of " + entityClass.getSimpleName()
+                    + ": the result graph is a " + resultGraph.getType() + ", but fetch"
+                    + (nodesToFetchOnly ? "Only" : "Extra") + " requires a " + nodesType);
+        }
+
+        final int sourceCount = (resultGraph == null ? 0 : 1)
+                + (nodesToFetch == null ? 0 : 1)
+                + (fetcherMerged ? 1 : 0);
+        if (sourceCount == 0) {
+            return fetcher == null ? (FetchPlan<T>) EMPTY : new FetchPlan<>(null, true);
+        }
+        if (sourceCount == 1 && resultGraph != null) {
+            return new FetchPlan<>(resultGraph, false);
+        }
+
+        final Set<String> paths = new LinkedHashSet<>();
+        if (resultGraph != null) {
+            addPaths(paths, "", resultGraph.getEntityGraph().getAttributeNodes());
+        }
+        if (nodesToFetch != null) {
+            nodesToFetch.forEach(attribute -> paths.add(attribute.getName()));
+        }
+        if (fetcherMerged) {
+            paths.addAll(fetcherPaths);
+        }
+        final String type = resultGraph != null
+                ? resultGraph.getType()
+                : nodesType != null ? nodesType : JpaUtils.JAKARTA_PERSISTENCE_LOADGRAPH;
+        return new FetchPlan<>(new ResultGraph<>(EntityGraphRegistry.getByPaths(em, entityClass, paths), type), false);
+    }
+
+    /**
+     * @return paths of the fetches created by the fetcher or {@code null} if some of them is not a left join fetch.
+     */
+    private static <T> Set<String> leftJoinFetchPaths(EntityManager em, Class<T> entityClass, Fetcher<T> fetcher) {
+        final Root<T> root = em.getCriteriaBuilder().createQuery(entityClass).from(entityClass);
+        fetcher.create(root);
+        final Set<String> paths = new LinkedHashSet<>();
+        return addFetchPaths(paths, "", root) ? paths : null;
+    }
+
+    private static boolean addFetchPaths(Set<String> paths, String prefix, FetchParent<?, ?> fetchParent) {
+        for (Fetch<?, ?> fetch : fetchParent.getFetches()) {
+            if (fetch.getJoinType() != JoinType.LEFT) {
+                return false;
+            }
+            final String path = prefix + fetch.getAttribute().getName();
+            paths.add(path);
+            if (!addFetchPaths(paths, path + ".", fetch)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void addPaths(Set<String> paths, String prefix, List<AttributeNode<?>> attributeNodes) {
+        for (AttributeNode<?> attributeNode : attributeNodes) {
+            final String path = prefix + attributeNode.getAttributeName();
+            paths.add(path);
+            for (Subgraph<?> subgraph : attributeNode.getSubgraphs().values()) {
+                addPaths(paths, path + ".", subgraph.getAttributeNodes());
+            }
+        }
+    }
+
+    /**
+     * @return the graph to be set as a query hint or {@code null} if there's none.
+     */
+    ResultGraph<T> getResultGraph() {
+        return resultGraph;
+    }
+
+    /**
+     * @return whether the {@code Fetcher} has to be applied to the criteria query, since it isn't merged into the graph.
+     */
+    boolean isFetcherApplied() {
+        return fetcherApplied;
+    }
+}
@@ -0,0 +1,269 @@
+package io.github.janhalasa.jparepositories.select;
+
+import io.github.janhalasa.jparepositories.model.OrderAttr;
+import io.github.janhalasa.jparepositories.model.OrderBy;
+import jakarta.persistence.PersistenceUnitUtil;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.Expression;
+import jakarta.persistence.criteria.Path;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import jakarta.persistence.metamodel.EntityType;
+import jakarta.persistence.metamodel.SingularAttribute;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Member;
+import java.lang.reflect.Method;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.OffsetDateTime;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Keyset (seek) pagination support. Turns sort attribute values of the last row of a page into a predicate
+ * selecting rows following it, and encodes those values into an opaque continuation token.
+ *
+ * @param <T> entity type
+ */
+class Keyset<T> {
+
+    private static final int TOKEN_VERSION = 1;
+
+    private final List<OrderAttr<T>> orderAttrs;
+
+    private Keyset(List<OrderAttr<T>> orderAttrs) {
+        this.orderAttrs = orderAttrs;
+    }
+
+    /**
+     * Creates a keyset for the given order. The primary key is appended as the last sort attribute if it's not
+     * already present, so the order is always total and no row is skipped or repeated.
+     */
+    static <T> Keyset<T> of(List<OrderAttr<T>> orderAttrs, EntityType<T> entityType) {
+        final List<OrderAttr<T>> keysetOrder = new ArrayList<>(orderAttrs == null ? List.of() : orderAttrs);
+        final SingularAttribute<T, ?> idAttribute = idAttribute(entityType);
+        final boolean idPresent = keysetOrder.stream()
+                .anyMatch(orderAttr -> orderAttr.getAttribute().getName().equals(idAttribute.getName()));
+        if (!idPresent) {
+            keysetOrder.add(OrderAttr.asc(idAttribute));
+        }
+        return new Keyset<>(keysetOrder);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> SingularAttribute<T, ?> idAttribute(EntityType<T> entityType) {
+        if (!entityType.hasSingleIdAttribute()) {
+            throw new IllegalStateException("Keyset pagination requires an entity with a single ID attribute: "
+                    + entityType.getName());
+        }
+        return (SingularAttribute<T, ?>) entityType.getId(entityType.getIdType().getJavaType());
+    }
+
+    List<OrderAttr<T>> getOrderAttrs() {
+        return orderAttrs;
+    }
+
+    /**
+     * Builds a predicate matching rows which follow the given key in the keyset order:
+     * {@code (a1 > v1) OR (a1 = v1 AND a2 > v2) OR ...} with {@code <} used for descending attributes.
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    Predicate seekPredicate(CriteriaBuilder cb, Root<T> root, List<Object> lastKey) {
+        final List<Predicate> alternatives = new ArrayList<>(orderAttrs.size());
+        final List<Predicate> equalities = new ArrayList<>(orderAttrs.size());
+        for (int i = 0; i < orderAttrs.size(); i++) {
+            final OrderAttr<T> orderAttr = orderAttrs.get(i);
+            final Path<?> path = root.get((SingularAttribute<T, ?>) orderAttr.getAttribute());
+            final Comparable value = (Comparable) lastKey.get(i);
+            final Predicate following = orderAttr.getDirection() == OrderBy.OrderDirection.ASC
+                    ? cb.greaterThan((Expression<Comparable>) path, value)
+                    : cb.lessThan((Expression<Comparable>) path, value);
+            final List<Predicate> conjunction = new ArrayList<>(equalities);
+            conjunction.add(following);
+            alternatives.add(cb.and(conjunction.toArray(new Predicate[0])));
+            equalities.add(cb.equal(path, value));
+        }
+        return cb.or(alternatives.toArray(new Predicate[0]));
+    }
+
+    /**
+     * Reads values of the sort attributes of the entity. The entity may be a proxy (e.g. created
+     * by {@code EntityManager.getReference} before the query loaded it), which has no state in its fields,
+     * so the primary key is read by {@link PersistenceUnitUtil} and the other attributes by their getters.
+     */
+    List<Object> keyOf(T entity, PersistenceUnitUtil unitUtil) {
+        final List<Object> key = new ArrayList<>(orderAttrs.size());
+        for (OrderAttr<T> orderAttr : orderAttrs) {
+            final Object value = orderAttr.getAttribute().isId()
+                    ? unitUtil.getIdentifier(entity)
+                    : readAttribute(entity, orderAttr.getAttribute());
+            if (value == null) {
+                throw new IllegalStateException("Keyset pagination doesn't support null values of sort attributes: "
+                        + orderAttr.getAttribute().getName());
+            }
+            key.add(value);
+        }
+        return key;
+    }
+
+    String encode(List<Object> key) {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(TOKEN_VERSION);
+            out.writeByte(key.size());
+            for (Object value : key) {
+                out.writeUTF(encodeValue(value));
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Unable to encode continuation token", e);
+        }
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes.toByteArray());
+    }
+
+    List<Object> decode(String token) {
+        final List<Object> key = new ArrayList<>(orderAttrs.size());
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(Base64.getUrlDecoder().decode(
+                token.getBytes(StandardCharsets.US_ASCII))))) {
+            if (in.readByte() == TOKEN_VERSION && in.readByte() == orderAttrs.size()) {
+                for (OrderAttr<T> orderAttr : orderAttrs) {
+                    key.add(decodeValue(in.readUTF(), orderAttr.getAttribute().getJavaType()));
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            throw new IllegalArgumentException("Invalid continuation token: " + token, e);
+        }
+        if (key.size() != orderAttrs.size()) {
+            throw new IllegalArgumentException("Continuation token doesn't belong to this query: " + token);
+        }
+        return key;
+    }
+
+    private static Object readAttribute(Object entity, SingularAttribute<?, ?> attribute) {
+        final Member member = attribute.getJavaMember();
+        try {
+            final Method getter = member instanceof Method ? (Method) member : getter(entity.getClass(), attribute);
+            if (getter != null) {
+                getter.setAccessible(true);
+                return getter.invoke(entity);
+            }
+            if (member instanceof Field) {
+                final Field field = (Field) member;
+                field.setAccessible(true);
+                return field.get(entity);
+            }
+        } catch (IllegalAccessException | InvocationTargetException e) {
+            throw new IllegalStateException("Unable to read attribute " + attribute.getName(), e);
+        }
+        throw new IllegalStateException("Unsupported attribute member for keyset pagination: " + attribute.getName());
+    }
+
+    /**
+     * @return the public getter of the attribute or {@code null} if there's none.
+     */
+    private static Method getter(Class<?> entityClass, SingularAttribute<?, ?> attribute) {
+        final String name = attribute.getName();
+        final String capitalized = Character.toUpperCase(name.charAt(0)) + name.substring(1);
+        for (String getterName : List.of("get" + capitalized, "is" + capitalized)) {
+            try {
+                final Method method = entityClass.getMethod(getterName);
+                if (method.getReturnType() != void.class) {
+                    return method;
+                }
+            } catch (NoSuchMethodException e) {
+                // Try the next naming convention.
+            }
+        }
+        return null;
+    }
+
+    private static String encodeValue(Object value) {
+        if (value instanceof Enum) {
+            return ((Enum<?>) value).name();
+        }
+        if (value instanceof String || value instanceof Number || value instanceof Boolean
+                || value instanceof Character || value instanceof UUID || value instanceof LocalDate
+                || value instanceof LocalDateTime || value instanceof LocalTime || value instanceof Instant
+                || value instanceof OffsetDateTime || value instanceof ZonedDateTime) {
+            return value.toString();
+        }
+        throw new IllegalStateException("Unsupported type of a keyset pagination sort attribute: "
+                + value.getClass().getName());
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static Object decodeValue(String value, Class<?> type) {
+        if (type == String.class) {
+            return value;
+        }
+        if (type == Long.class || type == long.class) {
+            return Long.valueOf(value);
+        }
+        if (type == Integer.class || type == int.class) {
+            return Integer.valueOf(value);
+        }
+        if (type == Short.class || type == short.class) {
+            return Short.valueOf(value);
+        }
+        if (type == Byte.class || type == byte.class) {
+            return Byte.valueOf(value);
+        }
+        if (type == Double.class || type == double.class) {
+            return Double.valueOf(value);
+        }
+        if (type == Float.class || type == float.class) {
+            return Float.valueOf(value);
+        }
+        if (type == Boolean.class || type == boolean.class) {
+            return Boolean.valueOf(value);
+        }
+        if (type == Character.class || type == char.class) {
+            return value.charAt(0);
+        }
+        if (type == BigDecimal.class) {
+            return new BigDecimal(value);
+        }
+        if (type == BigInteger.class) {
+            return new BigInteger(value);
+        }
+        if (type == UUID.class) {
+            return UUID.fromString(value);
+        }
+        if (type == LocalDate.class) {
+            return LocalDate.parse(value);
+        }
+        if (type == LocalDateTime.class) {
+            return LocalDateTime.parse(value);
+        }
+        if (type == LocalTime.class) {
+            return LocalTime.parse(value);
+        }
+        if (type == Instant.class) {
+            return Instant.parse(value);
+        }
+        if (type == OffsetDateTime.class) {
+            return OffsetDateTime.parse(value);
+        }
+        if (type == ZonedDateTime.class) {
+            return ZonedDateTime.parse(value);
+        }
+        if (type.isEnum()) {
+            return Enum.valueOf((Class<Enum>) type, value);
+        }
+        throw new IllegalStateException("Unsupported type of a keyset pagination sort attribute: " + type.getName());
+    }
+}
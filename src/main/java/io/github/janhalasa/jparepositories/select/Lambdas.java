@@ -0,0 +1,61 @@
+package io.github.janhalasa.jparepositories.select;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Helper methods for inspecting lambdas (or other implementations) of the query building interfaces.
+ */
+final class Lambdas {
+
+    private Lambdas() {
+    }
+
+    /**
+     * Checks whether the object has no instance fields. Lambdas store captured variables (including {@code this})
+     * in instance fields of their generated class, so a lambda without them always builds the same query.
+     */
+    static boolean isStateless(Object lambda) {
+        if (lambda == null) {
+            return true;
+        }
+        for (Class<?> type = lambda.getClass(); type != null && type != Object.class; type = type.getSuperclass()) {
+            for (Field field : type.getDeclaredFields()) {
+                if (!Modifier.isStatic(field.getModifiers())) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns values of instance fields of the object, which are variables captured by a lambda.
+     */
+    static List<Object> capturedValues(Object lambda) {
+        if (lambda == null) {
+            return List.of();
+        }
+        final List<Object> values = new ArrayList<>();
+        for (Class<?> type = lambda.getClass(); type != null && type != Object.class; type = type.getSuperclass()) {
+            for (Field field : type.getDeclaredFields()) {
+                if (!Modifier.isStatic(field.getModifiers())) {
+                    try {
+                        field.setAccessible(true);
+                        values.add(field.get(lambda));
+                    } catch (IllegalAccessException | RuntimeException e) {
+                        throw new IllegalStateException("Unable to read captured variable " + field.getName()
+                                + " of " + type.getName(), e);
+                    }
+                }
+            }
+        }
+        return values;
+    }
+
+    static Class<?> classOf(Object lambda) {
+        return lambda == null ? null : lambda.getClass();
+    }
+}
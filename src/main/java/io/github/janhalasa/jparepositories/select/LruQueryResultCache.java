@@ -0,0 +1,180 @@
+package io.github.janhalasa.jparepositories.select;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * An in-process {@link QueryResultCache}. It's a bounded LRU cache which limits the total number of cached results
+ * (not entries), so a few large result lists can't take all the memory. An entry weighs the number of its results,
+ * at least 1. Expired entries are removed when accessed or when evicted as the least recently used.
+ * <p>
+ * The cache is thread safe and it's meant to be shared, for example one instance per application.
+ */
+public class LruQueryResultCache implements QueryResultCache {
+
+    private final long maxWeight;
+    private final Map<List<Object>, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final Map<String, Set<Class<?>>> regionEntityClasses = new HashMap<>();
+    private long weight = 0;
+    private final LongAdder hitCount = new LongAdder();
+    private final LongAdder missCount = new LongAdder();
+    private final LongAdder evictionCount = new LongAdder();
+
+    /**
+     * @param maxWeight maximum total number of cached results.
+     */
+    public LruQueryResultCache(long maxWeight) {
+        if (maxWeight < 1) {
+            throw new IllegalArgumentException("Max weight must be 1 or higher: " + maxWeight);
+        }
+        this.maxWeight = maxWeight;
+    }
+
+    @Override
+    public List<?> get(String region, Object key) {
+        synchronized (entries) {
+            final List<Object> entryKey = List.of(region, key);
+            final Entry entry = entries.get(entryKey);
+            if (entry == null || entry.isExpired(System.nanoTime())) {
+                if (entry != null) {
+                    remove(entryKey);
+                }
+                missCount.increment();
+                return null;
+            }
+            hitCount.increment();
+            return entry.results;
+        }
+    }
+
+    @Override
+    public void put(String region, Object key, Set<Class<?>> entityClasses, List<?> results, Duration timeToLive) {
+        final Entry entry = new Entry(
+                Collections.unmodifiableList(results),
+                System.nanoTime() + timeToLive.toNanos());
+        if (entry.weight > maxWeight) {
+            return;
+        }
+        synchronized (entries) {
+            regionEntityClasses.computeIfAbsent(region, r -> new HashSet<>()).addAll(entityClasses);
+            final List<Object> entryKey = List.of(region, key);
+            remove(entryKey);
+            entries.put(entryKey, entry);
+            weight += entry.weight;
+            evict();
+        }
+    }
+
+    @Override
+    public void invalidate(Class<?> entityClass) {
+        synchronized (entries) {
+            regionEntityClasses.entrySet().removeIf(regionClasses -> {
+                if (regionClasses.getValue().contains(entityClass)) {
+                    removeRegionEntries(regionClasses.getKey());
+                    return true;
+                }
+                return false;
+            });
+        }
+    }
+
+    @Override
+    public void invalidateRegion(String region) {
+        synchronized (entries) {
+            removeRegionEntries(region);
+            regionEntityClasses.remove(region);
+        }
+    }
+
+    public void clear() {
+        synchronized (entries) {
+            entries.clear();
+            regionEntityClasses.clear();
+            weight = 0;
+        }
+    }
+
+    public long getHitCount() {
+        return hitCount.sum();
+    }
+
+    public long getMissCount() {
+        return missCount.sum();
+    }
+
+    public long getEvictionCount() {
+        return evictionCount.sum();
+    }
+
+    public long getMaxWeight() {
+        return maxWeight;
+    }
+
+    /**
+     * @return total number of cached results.
+     */
+    public long getWeight() {
+        synchronized (entries) {
+            return weight;
+        }
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    private void evict() {
+        final Iterator<Map.Entry<List<Object>, Entry>> leastRecentlyUsed = entries.entrySet().iterator();
+        while (weight > maxWeight && leastRecentlyUsed.hasNext()) {
+            final Entry entry = leastRecentlyUsed.next().getValue();
+            leastRecentlyUsed.remove();
+            weight -= entry.weight;
+            evictionCount.increment();
+        }
+    }
+
+    private void removeRegionEntries(String region) {
+        final Iterator<Map.Entry<List<Object>, Entry>> iterator = entries.entrySet().iterator();
+        while (iterator.hasNext()) {
+            final Map.Entry<List<Object>, Entry> entry = iterator.next();
+            if (entry.getKey().get(0).equals(region)) {
+                iterator.remove();
+                weight -= entry.getValue().weight;
+            }
+        }
+    }
+
+    private void remove(List<Object> entryKey) {
+        final Entry removed = entries.remove(entryKey);
+        if (removed != null) {
+            weight -= removed.weight;
+        }
+    }
+
+    private static class Entry {
+
+        private final List<?> results;
+        private final long weight;
+        private final long expiresAtNanos;
+
+        private Entry(List<?> results, long expiresAtNanos) {
+            this.results = results;
+            this.weight = Math.max(results.size(), 1);
+            this.expiresAtNanos = expiresAtNanos;
+        }
+
+        private boolean isExpired(long nowNanos) {
+            return nowNanos - expiresAtNanos >= 0;
+        }
+    }
+}
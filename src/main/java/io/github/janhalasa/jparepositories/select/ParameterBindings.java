@@ -0,0 +1,55 @@
+package io.github.janhalasa.jparepositories.select;
+
+import io.github.janhalasa.jparepositories.model.QueryParameters;
+import jakarta.persistence.TypedQuery;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.ParameterExpression;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Collects values of parameters created while building a criteria query, so they can be bound
+ * to the {@code TypedQuery} created from it.
+ */
+class ParameterBindings implements QueryParameters {
+
+    private final CriteriaBuilder cb;
+    private final Map<String, ParameterExpression<?>> expressions = new LinkedHashMap<>();
+    private final Map<String, Object> values = new LinkedHashMap<>();
+
+    ParameterBindings(CriteriaBuilder cb) {
+        this.cb = cb;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <V> ParameterExpression<V> param(String name, V value) {
+        if (value == null) {
+            throw new IllegalArgumentException("Type of parameter " + name + " cannot be derived from a null value. "
+                    + "Use param(name, type, value) instead.");
+        }
+        final Class<?> type = value instanceof Enum ? ((Enum<?>) value).getDeclaringClass() : value.getClass();
+        return this.param(name, (Class<V>) type, value);
+    }
+
+    @Override
+    public <V> ParameterExpression<V> param(String name, Class<V> type, V value) {
+        if (values.containsKey(name) && !Objects.equals(values.get(name), value)) {
+            throw new IllegalArgumentException("Parameter " + name + " is already bound to a different value");
+        }
+        values.put(name, value);
+        return this.param(name, type);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <V> ParameterExpression<V> param(String name, Class<V> type) {
+        return (ParameterExpression<V>) expressions.computeIfAbsent(name, key -> cb.parameter(type, key));
+    }
+
+    void bind(TypedQuery<?> typedQuery) {
+        values.forEach(typedQuery::setParameter);
+    }
+}
@@ -0,0 +1,169 @@
+package io.github.janhalasa.jparepositories.select;
+
+import io.github.janhalasa.jparepositories.EntityGraphRegistry;
+import io.github.janhalasa.jparepositories.JpaUtils;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceUnitUtil;
+import jakarta.persistence.TypedQuery;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Join;
+import jakarta.persistence.criteria.Root;
+import jakarta.persistence.metamodel.Attribute;
+import jakarta.persistence.metamodel.EntityType;
+import jakarta.persistence.metamodel.PluralAttribute;
+import jakarta.persistence.metamodel.SingularAttribute;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Loads associations of already loaded entities in bulk, so iterating over them doesn't trigger a query per entity
+ * (the N+1 problem). Primary keys of the owning entities are collected and the associated entities are loaded
+ * by {@code IN} queries split into chunks. Loaded entities become managed by the persistence context, so lazy proxies
+ * and collections of the owners are resolved from it without hitting the database:
+ * <pre>{@code
+ * List<Vendor> vendors = select().list();
+ * Prefetcher.prefetchPath(em, Vendor.class, vendors, List.of(Vendor_.models, CarModel_.cars));
+ * }</pre>
+ * Entities passed in have to be managed by the given {@code EntityManager}.
+ * See also {@link Select#thenFetch(Attribute, Attribute[])}.
+ */
+public final class Prefetcher {
+
+    public static final int DEFAULT_IN_LIST_LIMIT = 1000;
+
+    private Prefetcher() {
+    }
+
+    /**
+     * Loads the association of the given entities. See {@link #prefetch(EntityManager, Class, Collection, Attribute, int, boolean)}.
+     */
+    public static <T> List<?> prefetch(
+            EntityManager em,
+            Class<T> entityClass,
+            Collection<? extends T> entities,
+            Attribute<? super T, ?> attribute) {
+        return prefetch(em, entityClass, entities, attribute, DEFAULT_IN_LIST_LIMIT, true);
+    }
+
+    /**
+     * Loads the association of the given entities.
+     *
+     * @param entityClass    class of the entities.
+     * @param entities       managed entities owning the association. They may be uninitialized proxies.
+     * @param attribute      the association - a singular one or a collection.
+     * @param inListLimit    maximum number of primary keys in one {@code IN} list.
+     * @param returnTargets  whether associated entities of all the given entities are needed. If not, entities having
+     *                       the association loaded already are skipped and an empty list is returned.
+     * @return associated entities (without duplicates), which may be used to prefetch their associations.
+     */
+    public static <T> List<?> prefetch(
+            EntityManager em,
+            Class<T> entityClass,
+            Collection<? extends T> entities,
+            Attribute<? super T, ?> attribute,
+            int inListLimit,
+            boolean returnTargets) {
+        if (inListLimit < 1) {
+            throw new IllegalArgumentException("IN list limit must be 1 or higher: " + inListLimit);
+        }
+        if (!attribute.isAssociation()) {
+            throw new IllegalArgumentException("Attribute " + attribute.getName() + " is not an association");
+        }
+        final PersistenceUnitUtil unitUtil = em.getEntityManagerFactory().getPersistenceUnitUtil();
+        final Set<Object> pkValues = new LinkedHashSet<>();
+        for (T entity : entities) {
+            if (returnTargets || !unitUtil.isLoaded(entity, attribute.getName())) {
+                pkValues.add(unitUtil.getIdentifier(entity));
+            }
+        }
+        if (pkValues.isEmpty()) {
+            return List.of();
+        }
+
+        final Set<Object> targets = new LinkedHashSet<>();
+        for (List<Object> chunk : chunks(new ArrayList<>(pkValues), inListLimit)) {
+            if (attribute.isCollection()) {
+                // Loading the owners with the collection in the graph initializes the collection.
+                loadWithCollection(em, entityClass, attribute, chunk);
+            }
+            if (returnTargets || !attribute.isCollection()) {
+                targets.addAll(loadTargets(em, entityClass, attribute, chunk));
+            }
+        }
+        return returnTargets ? new ArrayList<>(targets) : List.of();
+    }
+
+    /**
+     * Loads a path of associations of the given entities, such as {@code Vendor_.models, CarModel_.cars}.
+     * Every attribute of the path costs one query per chunk of primary keys (two for a collection followed by another
+     * attribute), regardless of the number of entities.
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public static <T> void prefetchPath(
+            EntityManager em,
+            Class<T> entityClass,
+            Collection<? extends T> entities,
+            List<? extends Attribute<?, ?>> path) {
+        Class owningClass = entityClass;
+        Collection<?> owners = entities;
+        for (int i = 0; i < path.size() && !owners.isEmpty(); i++) {
+            final Attribute attribute = path.get(i);
+            final boolean lastAttribute = i == path.size() - 1;
+            owners = prefetch(em, owningClass, owners, attribute, DEFAULT_IN_LIST_LIMIT, !lastAttribute);
+            owningClass = targetClass(attribute);
+        }
+    }
+
+    private static Class<?> targetClass(Attribute<?, ?> attribute) {
+        return attribute.isCollection()
+                ? ((PluralAttribute<?, ?, ?>) attribute).getElementType().getJavaType()
+                : ((SingularAttribute<?, ?>) attribute).getType().getJavaType();
+    }
+
+    private static <T> void loadWithCollection(
+            EntityManager em,
+            Class<T> entityClass,
+            Attribute<? super T, ?> attribute,
+            List<Object> pkValues) {
+        final CriteriaBuilder cb = em.getCriteriaBuilder();
+        final CriteriaQuery<T> q = cb.createQuery(entityClass);
+        final Root<T> root = q.from(entityClass);
+        q.select(root).where(root.get(idAttribute(em, entityClass)).in(pkValues));
+        em.createQuery(q)
+                .setHint(JpaUtils.JAKARTA_PERSISTENCE_LOADGRAPH, EntityGraphRegistry.get(em, entityClass, List.of(attribute)))
+                .getResultList();
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static <T> List<?> loadTargets(
+            EntityManager em,
+            Class<T> entityClass,
+            Attribute<? super T, ?> attribute,
+            List<Object> pkValues) {
+        final CriteriaBuilder cb = em.getCriteriaBuilder();
+        final CriteriaQuery q = cb.createQuery(targetClass(attribute));
+        final Root<T> root = q.from(entityClass);
+        final Join<T, ?> join = root.join(attribute.getName());
+        q.select(join).where(root.get(idAttribute(em, entityClass)).in(pkValues));
+        final TypedQuery<?> typedQuery = em.createQuery(q);
+        return typedQuery.getResultList();
+    }
+
+    private static <T> SingularAttribute<? super T, ?> idAttribute(EntityManager em, Class<T> entityClass) {
+        final EntityType<T> entityType = em.getMetamodel().entity(entityClass);
+        return entityType.getId(entityType.getIdType().getJavaType());
+    }
+
+    private static <E> List<List<E>> chunks(List<E> values, int chunkSize) {
+        final List<List<E>> chunks = new ArrayList<>();
+        for (int i = 0; i < values.size(); i += chunkSize) {
+            chunks.add(values.subList(i, Math.min(i + chunkSize, values.size())));
+        }
+        return chunks;
+    }
+}
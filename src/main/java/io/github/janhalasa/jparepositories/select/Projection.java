@@ -0,0 +1,80 @@
+package io.github.janhalasa.jparepositories.select;
+
+import io.github.janhalasa.jparepositories.ResultPage;
+import io.github.janhalasa.jparepositories.model.CountMode;
+import jakarta.persistence.NonUniqueResultException;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.Root;
+import jakarta.persistence.criteria.Selection;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.function.BiFunction;
+
+/**
+ * A projection of a {@link Select} query. It uses the predicates, ordering, limits and parameters of the query,
+ * but it selects just the given attributes instead of whole entities. Fetching configuration of the query is ignored.
+ * <p>
+ * Results are not managed entities, so they are not tracked by the persistence context. Make the result class
+ * immutable to make it obvious that changing the results doesn't change the database.
+ *
+ * @param <T> entity type
+ * @param <R> result type
+ */
+public class Projection<T, R> {
+
+    private final Select<T> select;
+    private final Class<R> resultClass;
+    private final BiFunction<CriteriaBuilder, Root<T>, Selection<R>> selection;
+    private final List<String> selectedAttributes;
+
+    Projection(
+            Select<T> select,
+            Class<R> resultClass,
+            BiFunction<CriteriaBuilder, Root<T>, Selection<R>> selection,
+            List<String> selectedAttributes) {
+        this.select = select;
+        this.resultClass = resultClass;
+        this.selection = selection;
+        this.selectedAttributes = selectedAttributes;
+    }
+
+    public Optional<R> optional() {
+        List<R> resultList = select.listProjection("projectOptional", resultClass, selection, selectedAttributes);
+        if (resultList.isEmpty()) {
+            return Optional.empty();
+        }
+        if (resultList.size() > 1) {
+            throw new NonUniqueResultException("More than one result found: " + resultList.size());
+        }
+        return Optional.of(resultList.get(0));
+    }
+
+    public R single() {
+        return select.singleProjection(resultClass, selection, selectedAttributes);
+    }
+
+    public List<R> list() {
+        return select.listProjection("projectList", resultClass, selection, selectedAttributes);
+    }
+
+    public ResultPage<R> page(int pageNumber, int pageSize) {
+        return this.page(pageNumber, pageSize, CountMode.EXACT);
+    }
+
+    /**
+     * Returns the requested page of results. The total count is the number of matching entities, the same as
+     * {@link Select#page(int, int, CountMode)} returns.
+     */
+    public ResultPage<R> page(int pageNumber, int pageSize, CountMode countMode) {
+        return select.page(
+                pageNumber,
+                pageSize,
+                countMode,
+                () -> select.createProjectionQuery(true, resultClass, selection, selectedAttributes));
+    }
+
+    public long count() {
+        return select.count();
+    }
+}
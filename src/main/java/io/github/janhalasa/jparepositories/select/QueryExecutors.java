@@ -0,0 +1,119 @@
+package io.github.janhalasa.jparepositories.select;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.Session;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+
+/**
+ * Provides the default executor of asynchronous queries (see {@link Select#listAsync()}).
+ */
+public final class QueryExecutors {
+
+    private static final String THREAD_NAME_PREFIX = "jpa-repositories-query-";
+
+    private QueryExecutors() {
+    }
+
+    /**
+     * Returns a shared executor which starts a virtual thread per task if the runtime supports them (Java 21+).
+     * Otherwise, it's a pool of daemon threads bounded by twice the number of processors (at least 4).
+     * Either way, the number of concurrently executed queries is bounded by the connection pool
+     * of the {@code EntityManagerFactory}.
+     */
+    public static ExecutorService defaultExecutor() {
+        return DefaultExecutorHolder.EXECUTOR;
+    }
+
+    /**
+     * Executes the task asynchronously with a new {@code EntityManager} created for it, because EntityManager is
+     * not thread safe. The {@code EntityManager} is closed once the task finishes.
+     * <p>
+     * Cancelling the returned future skips the task if it hasn't started yet. A running query is cancelled
+     * by {@code Session.cancelQuery()} if Hibernate is the JPA provider, which cancels the JDBC statement.
+     * JPA doesn't offer a way to cancel a query, so with other providers the query runs until it completes
+     * and just its result is dropped.
+     */
+    public static <R> CompletableFuture<R> supplyAsync(
+            EntityManagerFactory entityManagerFactory,
+            Function<EntityManager, R> task,
+            Executor executor) {
+        final AtomicReference<EntityManager> runningEm = new AtomicReference<>();
+        final CompletableFuture<R> future = new CompletableFuture<>() {
+            @Override
+            public boolean cancel(boolean mayInterruptIfRunning) {
+                final boolean cancelled = super.cancel(mayInterruptIfRunning);
+                final EntityManager taskEm = runningEm.get();
+                if (cancelled && taskEm != null) {
+                    cancelQuery(taskEm);
+                }
+                return cancelled;
+            }
+        };
+        executor.execute(() -> {
+            if (future.isDone()) {
+                return;
+            }
+            final EntityManager taskEm = entityManagerFactory.createEntityManager();
+            runningEm.set(taskEm);
+            try {
+                future.complete(task.apply(taskEm));
+            } catch (Throwable e) {
+                future.completeExceptionally(e);
+            } finally {
+                runningEm.set(null);
+                taskEm.close();
+            }
+        });
+        return future;
+    }
+
+    private static void cancelQuery(EntityManager em) {
+        try {
+            HibernateQueryCancellation.cancelQuery(em);
+        } catch (RuntimeException | LinkageError e) {
+            // Another JPA provider, or the query has just finished.
+        }
+    }
+
+    private static ExecutorService createDefaultExecutor() {
+        try {
+            // Called reflectively, since the library is compiled for Java 11.
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            final AtomicInteger threadNumber = new AtomicInteger();
+            final ThreadFactory threadFactory = runnable -> {
+                final Thread thread = new Thread(runnable, THREAD_NAME_PREFIX + threadNumber.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            };
+            return Executors.newFixedThreadPool(
+                    Math.max(4, Runtime.getRuntime().availableProcessors() * 2),
+                    threadFactory);
+        }
+    }
+
+    /**
+     * Separated, so Hibernate classes are loaded only when a query is cancelled.
+     */
+    private static final class HibernateQueryCancellation {
+        private static void cancelQuery(EntityManager em) {
+            em.unwrap(Session.class).cancelQuery();
+        }
+    }
+
+    /**
+     * The executor is created on the first use.
+     */
+    private static final class DefaultExecutorHolder {
+        private static final ExecutorService EXECUTOR = createDefaultExecutor();
+    }
+}
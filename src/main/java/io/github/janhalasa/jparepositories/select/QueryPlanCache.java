@@ -0,0 +1,148 @@
+package io.github.janhalasa.jparepositories.select;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.Parameter;
+import jakarta.persistence.TypedQuery;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * A bounded LRU cache of compiled {@link Select} queries. A query is compiled once into a named query registered
+ * in the {@code EntityManagerFactory}. Following executions of a query with the same shape skip building
+ * the criteria tree and its translation - they just create the named query and bind parameter values.
+ * <p>
+ * The shape of a query consists of the entity class, classes of the lambdas defining the query and its ordering,
+ * fetching and distinct configuration. Values captured by the lambdas are not part of the shape, so only queries
+ * built by lambdas without captured state are cached. Values should be passed as parameters instead
+ * (see {@link Select#parameter(String, Object)}). Values of parameters bound while compiling the query (such as constants
+ * of {@code params.param(name, value)} in a lambda without captured state) are kept with the cached query and bound
+ * again on every use, since named queries don't keep parameter bindings.
+ * <p>
+ * The cache is thread safe and it's meant to be shared, for example one instance per application.
+ */
+public class QueryPlanCache {
+
+    private static final String QUERY_NAME_PREFIX = QueryPlanCache.class.getName() + "#";
+
+    private final int maxSize;
+    private final Map<List<Object>, CachedQuery> queries;
+    private final Deque<String> evictedQueryNames = new ArrayDeque<>();
+    private final AtomicLong queryNameSequence = new AtomicLong();
+    private final LongAdder hitCount = new LongAdder();
+    private final LongAdder missCount = new LongAdder();
+    private final LongAdder evictionCount = new LongAdder();
+
+    public QueryPlanCache(int maxSize) {
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("Max size must be 1 or higher: " + maxSize);
+        }
+        this.maxSize = maxSize;
+        this.queries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<List<Object>, CachedQuery> eldest) {
+                final boolean evict = size() > QueryPlanCache.this.maxSize;
+                if (evict) {
+                    evictionCount.increment();
+                    // Names of evicted queries are reused, so the number of registered named queries stays bounded.
+                    evictedQueryNames.push(eldest.getValue().name);
+                }
+                return evict;
+            }
+        };
+    }
+
+    /**
+     * Returns a query created from the named query registered for the given shape. If there's none,
+     * the query is compiled by the given supplier and registered.
+     */
+    <R> TypedQuery<R> getOrCompile(
+            EntityManager em,
+            List<Object> shape,
+            Class<R> resultClass,
+            Supplier<TypedQuery<R>> compiler) {
+        final List<Object> key = List.of(em.getEntityManagerFactory(), shape);
+        final CachedQuery cachedQuery;
+        final TypedQuery<R> namedQuery;
+        synchronized (queries) {
+            // The named query is created while holding the lock, because the name may be reused after an eviction.
+            cachedQuery = queries.get(key);
+            namedQuery = cachedQuery == null ? null : em.createNamedQuery(cachedQuery.name, resultClass);
+        }
+        if (cachedQuery != null) {
+            hitCount.increment();
+            cachedQuery.parameterValues.forEach(namedQuery::setParameter);
+            return namedQuery;
+        }
+        missCount.increment();
+        final TypedQuery<R> query = compiler.get();
+        final Map<String, Object> parameterValues = boundParameterValues(query);
+        synchronized (queries) {
+            final String name = evictedQueryNames.isEmpty()
+                    ? QUERY_NAME_PREFIX + queryNameSequence.incrementAndGet()
+                    : evictedQueryNames.pop();
+            em.getEntityManagerFactory().addNamedQuery(name, query);
+            queries.put(key, new CachedQuery(name, parameterValues));
+        }
+        return query;
+    }
+
+    private static Map<String, Object> boundParameterValues(TypedQuery<?> query) {
+        final Map<String, Object> parameterValues = new LinkedHashMap<>();
+        for (Parameter<?> parameter : query.getParameters()) {
+            if (parameter.getName() != null && query.isBound(parameter)) {
+                parameterValues.put(parameter.getName(), query.getParameterValue(parameter));
+            }
+        }
+        return parameterValues;
+    }
+
+    public long getHitCount() {
+        return hitCount.sum();
+    }
+
+    public long getMissCount() {
+        return missCount.sum();
+    }
+
+    public long getEvictionCount() {
+        return evictionCount.sum();
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public int size() {
+        synchronized (queries) {
+            return queries.size();
+        }
+    }
+
+    /**
+     * Removes all the cached queries. Named queries already registered in the {@code EntityManagerFactory}
+     * are not unregistered (JPA doesn't support it), but they won't be used anymore.
+     */
+    public void clear() {
+        synchronized (queries) {
+            queries.values().forEach(cachedQuery -> evictedQueryNames.add(cachedQuery.name));
+            queries.clear();
+        }
+    }
+
+    private static final class CachedQuery {
+        private final String name;
+        private final Map<String, Object> parameterValues;
+
+        private CachedQuery(String name, Map<String, Object> parameterValues) {
+            this.name = name;
+            this.parameterValues = parameterValues;
+        }
+    }
+}
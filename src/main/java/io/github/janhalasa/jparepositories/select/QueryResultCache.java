@@ -0,0 +1,37 @@
+package io.github.janhalasa.jparepositories.select;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * A cache of query results used by {@link Select#cached(Duration, String)}. Results are cached in named regions.
+ * A region remembers entity classes of its results, so a modification of an entity class invalidates all regions
+ * caching it. {@link LruQueryResultCache} is an in-process implementation. Implement this interface to plug in
+ * a different one.
+ * <p>
+ * Implementations have to be thread safe.
+ */
+public interface QueryResultCache {
+
+    /**
+     * @return cached results or {@code null} if there are none or they have expired.
+     */
+    List<?> get(String region, Object key);
+
+    /**
+     * Caches results of a query of the given entity classes.
+     *
+     * @param key           query identification, with proper {@code equals()} and {@code hashCode()}.
+     * @param entityClasses entity classes the results depend on - the queried one and the joined or fetched ones.
+     * @param timeToLive    time after which the results expire.
+     */
+    void put(String region, Object key, Set<Class<?>> entityClasses, List<?> results, Duration timeToLive);
+
+    /**
+     * Removes results of all regions which cache results of the given entity class.
+     */
+    void invalidate(Class<?> entityClass);
+
+    void invalidateRegion(String region);
+}
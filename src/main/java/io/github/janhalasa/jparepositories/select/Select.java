@@ -1,39 +1,90 @@
 package io.github.janhalasa.jparepositories.select;
 
+import io.github.janhalasa.jparepositories.ChunkProgress;
+import io.github.janhalasa.jparepositories.CursorPage;
+import io.github.janhalasa.jparepositories.JpaUtils;
 import io.github.janhalasa.jparepositories.ResultPage;
+import io.github.janhalasa.jparepositories.ResultSizeExceededException;
+import io.github.janhalasa.jparepositories.metrics.QueryTimer;
+import io.github.janhalasa.jparepositories.metrics.RepositoryMetrics;
+import io.github.janhalasa.jparepositories.model.CountMode;
 import io.github.janhalasa.jparepositories.model.Fetcher;
 import io.github.janhalasa.jparepositories.model.OrderAttr;
 import io.github.janhalasa.jparepositories.model.OrderBy;
+import io.github.janhalasa.jparepositories.model.ParameterizedPredicateBuilder;
 import io.github.janhalasa.jparepositories.model.PredicateAndOrder;
 import io.github.janhalasa.jparepositories.model.PredicateAndOrderBuilder;
 import io.github.janhalasa.jparepositories.model.PredicateBuilder;
 import io.github.janhalasa.jparepositories.model.QueryBuilder;
 import io.github.janhalasa.jparepositories.model.ResultGraph;
-import jakarta.persistence.EntityGraph;
+import io.github.janhalasa.jparepositories.model.ScrollMode;
 import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.FlushModeType;
+import jakarta.persistence.NoResultException;
 import jakarta.persistence.NonUniqueResultException;
+import jakarta.persistence.PersistenceUnitUtil;
+import jakarta.persistence.Query;
+import jakarta.persistence.Tuple;
 import jakarta.persistence.TypedQuery;
 import jakarta.persistence.criteria.CriteriaBuilder;
 import jakarta.persistence.criteria.CriteriaQuery;
 import jakarta.persistence.criteria.Order;
+import jakarta.persistence.criteria.Path;
+import jakarta.persistence.criteria.Predicate;
 import jakarta.persistence.criteria.Root;
+import jakarta.persistence.criteria.Selection;
 import jakarta.persistence.metamodel.Attribute;
+import jakarta.persistence.metamodel.EntityType;
+import jakarta.persistence.metamodel.Metamodel;
+import jakarta.persistence.metamodel.SingularAttribute;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 public class Select<T> {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(Select.class);
+    private static final int DEFAULT_SCAN_CHUNK_SIZE = 500;
+    private static final int DEFAULT_STREAM_CLEAR_INTERVAL = 100;
+    private static final Set<Class<?>> UNCACHEABLE_LAMBDA_CLASSES = ConcurrentHashMap.newKeySet();
+    private static final Set<Class<?>> INTEGRAL_ID_TYPES = Set.of(
+            Long.class, long.class, Integer.class, int.class, Short.class, short.class, Byte.class, byte.class);
 
     private final Class<T> entityClass;
     private final EntityManager em;
     private boolean distinct = false;
     private PredicateBuilder<T> predicateBuilder = null;
+    private ParameterizedPredicateBuilder<T> parameterizedPredicateBuilder = null;
     private PredicateAndOrderBuilder<T> predicateAndOrderBuilder = null;
     private QueryBuilder<T> queryBuilder = null;
     private List<OrderAttr<T>> orderAttrs;
@@ -41,8 +92,24 @@ public class Select<T> {
     private List<Attribute<T, ?>> nodesToFetch;
     private boolean nodesToFetchOnly = false;
     private Fetcher<T> fetcher;
+    private FetchPlan<T> fetchPlan = null;
     private Integer limit = null;
     private Integer offset = null;
+    private Integer fetchSize = null;
+    private Integer clearEvery = null;
+    private final Map<String, Object> parameters = new LinkedHashMap<>();
+    private QueryPlanCache queryPlanCache = null;
+    private boolean readOnly = false;
+    private FlushModeType flushMode = null;
+    private QueryResultCache queryResultCache = null;
+    private Duration resultCacheTimeToLive = null;
+    private String resultCacheRegion = null;
+    private final List<List<Attribute<?, ?>>> prefetchPaths = new ArrayList<>();
+    private RepositoryMetrics metrics = null;
+    private Integer maxResultSize = null;
+    private Executor executor = null;
+    private String callSite = null;
+    private PredicateBuilder<T> rangePredicateBuilder = null;
 
     public static <T> Select<T> from(Class<T> entityClass, EntityManager em) {
         return new Select<>(entityClass, em);
@@ -53,6 +120,41 @@ public class Select<T> {
         this.em = em;
     }
 
+    /**
+     * Copies the query definition to be executed by another {@code EntityManager}.
+     */
+    private Select(Select<T> source, EntityManager em, String callSite) {
+        this.entityClass = source.entityClass;
+        this.em = em;
+        this.distinct = source.distinct;
+        this.predicateBuilder = source.predicateBuilder;
+        this.parameterizedPredicateBuilder = source.parameterizedPredicateBuilder;
+        this.predicateAndOrderBuilder = source.predicateAndOrderBuilder;
+        this.queryBuilder = source.queryBuilder;
+        this.orderAttrs = source.orderAttrs;
+        this.resultGraph = source.resultGraph;
+        this.nodesToFetch = source.nodesToFetch;
+        this.nodesToFetchOnly = source.nodesToFetchOnly;
+        this.fetcher = source.fetcher;
+        this.limit = source.limit;
+        this.offset = source.offset;
+        this.fetchSize = source.fetchSize;
+        this.clearEvery = source.clearEvery;
+        this.parameters.putAll(source.parameters);
+        this.queryPlanCache = source.queryPlanCache;
+        this.readOnly = source.readOnly;
+        this.flushMode = source.flushMode;
+        this.queryResultCache = source.queryResultCache;
+        this.resultCacheTimeToLive = source.resultCacheTimeToLive;
+        this.resultCacheRegion = source.resultCacheRegion;
+        this.prefetchPaths.addAll(source.prefetchPaths);
+        this.metrics = source.metrics;
+        this.maxResultSize = source.maxResultSize;
+        this.executor = source.executor;
+        this.callSite = callSite;
+        this.rangePredicateBuilder = source.rangePredicateBuilder;
+    }
+
     public Select<T> distinct() {
         this.distinct = true;
         return this;
@@ -67,39 +169,56 @@ public class Select<T> {
     }
 
     public Select<T> where(PredicateBuilder<T> predicateBuilder) {
-        if (this.predicateBuilder != null) {
-            LOGGER.warn("Overriding previously defined predicate builder");
-        }
-        if (this.queryBuilder != null) {
-            LOGGER.warn("Overriding previously defined query builder");
-            this.queryBuilder = null;
-        }
+        clearWhere();
         this.predicateBuilder = predicateBuilder;
         return this;
     }
 
+    /**
+     * Sets a predicate which passes values as bind parameters using {@code params.param(name, value)}:
+     * <pre>{@code
+     * .where((cb, root, params) -> cb.equal(root.get(Car_.color), params.param("color", color)))
+     * }</pre>
+     * The generated SQL doesn't contain the values, so it's the same for all of them.
+     */
+    public Select<T> where(ParameterizedPredicateBuilder<T> parameterizedPredicateBuilder) {
+        clearWhere();
+        this.parameterizedPredicateBuilder = parameterizedPredicateBuilder;
+        return this;
+    }
+
     public Select<T> whereAndOrder(PredicateAndOrderBuilder<T> predicateAndOrderBuilder) {
-        if (this.predicateBuilder != null) {
-            LOGGER.warn("Overriding previously defined predicate builder");
-        }
-        if (this.queryBuilder != null) {
-            LOGGER.warn("Overriding previously defined query builder");
-            this.queryBuilder = null;
-        }
+        clearWhere();
         this.predicateAndOrderBuilder = predicateAndOrderBuilder;
         return this;
     }
 
     public Select<T> where(QueryBuilder<T> queryBuilder) {
+        clearWhere();
+        this.queryBuilder = queryBuilder;
+        return this;
+    }
+
+    /**
+     * Only one way of defining the query criteria can be used, so a new one overrides the previous one.
+     */
+    private void clearWhere() {
         if (this.predicateBuilder != null) {
             LOGGER.warn("Overriding previously defined predicate builder");
             this.predicateBuilder = null;
         }
+        if (this.parameterizedPredicateBuilder != null) {
+            LOGGER.warn("Overriding previously defined parameterized predicate builder");
+            this.parameterizedPredicateBuilder = null;
+        }
+        if (this.predicateAndOrderBuilder != null) {
+            LOGGER.warn("Overriding previously defined predicate and order builder");
+            this.predicateAndOrderBuilder = null;
+        }
         if (this.queryBuilder != null) {
             LOGGER.warn("Overriding previously defined query builder");
+            this.queryBuilder = null;
         }
-        this.queryBuilder = queryBuilder;
-        return this;
     }
 
     public Select<T> orderBy(OrderAttr<T> orderAttr) {
@@ -122,8 +241,24 @@ public class Select<T> {
         return this;
     }
 
-    public Select<T> offset(int limit) {
-        this.limit = limit;
+    public Select<T> offset(int offset) {
+        this.offset = offset;
+        return this;
+    }
+
+    /**
+     * Guards {@link #list()} and {@link #optional()} (including those of projections, see
+     * {@link #project(Class, SingularAttribute[])}) against loading too many results into memory. At most
+     * {@code maxResultSize + 1} rows are fetched and if there are more results than {@code maxResultSize},
+     * a {@link ResultSizeExceededException} is thrown instead of returning an incomplete list. It doesn't apply
+     * if the query has a lower {@link #limit(int)}. See also {@link #listOrStream()}.
+     * Repositories set their {@code BasicRepository.maxResultSize()}.
+     */
+    public Select<T> maxResultSize(int maxResultSize) {
+        if (maxResultSize < 1) {
+            throw new IllegalArgumentException("Max result size must be 1 or higher: " + maxResultSize);
+        }
+        this.maxResultSize = maxResultSize;
         return this;
     }
 
@@ -133,9 +268,139 @@ public class Select<T> {
         return this;
     }
 
+    /**
+     * Sets the number of rows fetched from the database in one round trip by the JDBC driver.
+     * Useful mainly for {@link #stream()}, since some drivers read the whole result set into memory by default.
+     */
+    public Select<T> fetchSize(int fetchSize) {
+        if (fetchSize < 1) {
+            throw new IllegalArgumentException("Fetch size must be 1 or higher: " + fetchSize);
+        }
+        this.fetchSize = fetchSize;
+        return this;
+    }
+
+    /**
+     * Makes {@link #stream()} and {@link #forEach(Consumer)} clear the whole persistence context after every
+     * {@code clearEvery} processed entities instead of detaching each of them. It's cheaper, but it also detaches
+     * all other entities managed by the {@code EntityManager}.
+     */
+    public Select<T> clearEvery(int clearEvery) {
+        if (clearEvery < 1) {
+            throw new IllegalArgumentException("Clear interval must be 1 or higher: " + clearEvery);
+        }
+        this.clearEvery = clearEvery;
+        return this;
+    }
+
+    /**
+     * Makes the query return read-only entities. The JPA provider doesn't keep snapshots of their state for dirty
+     * checking, so they take about half the memory and flushing skips them. Changes made to them are not saved.
+     * The query doesn't flush pending changes of the persistence context before its execution, so it doesn't see them.
+     */
+    public Select<T> readOnly() {
+        this.readOnly = true;
+        return this;
+    }
+
+    /**
+     * This method is for methods with read-only as a parameter.
+     */
+    public Select<T> readOnly(boolean readOnly) {
+        this.readOnly = readOnly;
+        return this;
+    }
+
+    /**
+     * Sets the flush mode of the queries, overriding the one of the {@code EntityManager}. With
+     * {@code FlushModeType.AUTO}, pending changes of the persistence context (e.g. entities persisted in the current
+     * transaction, but not inserted yet) are flushed before the query if they can affect its results.
+     * It applies to {@link #readOnly()} queries too, which use {@code FlushModeType.COMMIT} otherwise.
+     */
+    public Select<T> flushMode(FlushModeType flushMode) {
+        this.flushMode = flushMode;
+        return this;
+    }
+
+    /**
+     * Binds a value of a parameter created in a lambda by {@code CriteriaBuilder.parameter(Class, String)}
+     * or {@code QueryParameters.param(String, Class)}.
+     * Parameters keep the lambdas free of captured variables, so the query can be cached
+     * (see {@link #compiled(QueryPlanCache)}) and its SQL stays the same for different values.
+     */
+    public Select<T> parameter(String name, Object value) {
+        this.parameters.put(name, value);
+        return this;
+    }
+
+    /**
+     * Compiles the query once into a named query cached in the given cache and reuses it by following executions
+     * of a query with the same shape. Queries with lambdas capturing variables are not cached, since the captured
+     * values would become a part of the compiled query. See {@link QueryPlanCache}.
+     */
+    public Select<T> compiled(QueryPlanCache queryPlanCache) {
+        this.queryPlanCache = queryPlanCache;
+        return this;
+    }
+
+    /**
+     * Sets the cache used by {@link #cached(Duration, String)}. Repositories set their
+     * {@code BasicRepository.queryResultCache()}.
+     */
+    public Select<T> resultCache(QueryResultCache queryResultCache) {
+        this.queryResultCache = queryResultCache;
+        return this;
+    }
+
+    /**
+     * Reports build and execution times and result sizes of {@link #list()}, {@link #optional()}, {@link #single()},
+     * {@link #page(int, int)} and {@link #count()} to the given metrics. Repositories set their
+     * {@code BasicRepository.repositoryMetrics()}.
+     */
+    public Select<T> metrics(RepositoryMetrics metrics) {
+        this.metrics = metrics;
+        return this;
+    }
+
+    /**
+     * Sets the executor of asynchronous queries ({@link #listAsync()}, {@link #countAsync()}, {@link #pageAsync(int, int)}
+     * and the count of {@link CountMode#PARALLEL}). It's {@link QueryExecutors#defaultExecutor()} by default.
+     * Repositories set their {@code BasicRepository.queryExecutor()}.
+     */
+    public Select<T> executor(Executor executor) {
+        this.executor = executor;
+        return this;
+    }
+
+    /**
+     * Caches results of {@link #list()}, {@link #optional()}, {@link #single()} and {@link #count()}
+     * (including those of projections) in the given region of the {@link QueryResultCache} set
+     * by {@link #resultCache(QueryResultCache)}. Following executions of the same query with the same values
+     * (both captured by the lambdas and bound as parameters) return the cached results without hitting
+     * the database. Captured values must implement {@code equals()} and {@code hashCode()}.
+     * <p>
+     * Results are loaded by a separate short-lived {@code EntityManager}, so only committed data is cached and
+     * the cached entities are detached snapshots, never managed by the caller's persistence context. They are
+     * shared by all the callers and threads, so treat them as read-only, and fetch the associations they need
+     * (see {@link #fetch(ResultGraph)}), since lazy ones can't be loaded later. Pending changes of the caller's
+     * persistence context are not visible to the query.
+     * <p>
+     * Repositories invalidate regions caching their entity class when they modify it. Modifications made
+     * by other means are visible after the results expire. It's meant for reference data.
+     */
+    public Select<T> cached(Duration timeToLive, String region) {
+        if (timeToLive.isNegative() || timeToLive.isZero()) {
+            throw new IllegalArgumentException("Time to live must be positive: " + timeToLive);
+        }
+        this.resultCacheTimeToLive = timeToLive;
+        this.resultCacheRegion = region;
+        return this;
+    }
+
     /**
      * Configures the query to use a specific result graph for fetching data.
-     * This method overrides any previously defined result graph or nodes to fetch.
+     * This method overrides any previously defined result graph. Nodes to fetch and a {@code Fetcher} are merged
+     * with the graph into a single entity graph (see {@link #fetchExtra(List)}).
      *
      * @param resultGraph the {@code ResultGraph<T>} object that defines the entity graph to be used
      *                    for fetching the query results.
@@ -145,11 +410,8 @@ public class Select<T> {
         if (this.resultGraph != null) {
             LOGGER.warn("Overriding previously defined result graph");
         }
-        if (this.nodesToFetch != null) {
-            LOGGER.warn("Overriding previously defined nodes to fetch");
-            this.nodesToFetch = null;
-        }
         this.resultGraph = resultGraph;
+        this.fetchPlan = null;
         return this;
     }
 
@@ -158,6 +420,9 @@ public class Select<T> {
      * The {@code Fetcher} is a functional interface which facilitates the customization
      * of fetched associations or attributes by modifying the root entity graph.
      *
+     * If it creates only left join fetches, they are merged with the result graph and nodes to fetch into a single
+     * entity graph. A {@code Fetcher} creating inner join fetches can't be combined with them.
+     *
      * @param fetcher the {@code Fetcher<T>} implementation that defines the fetch strategy
      *                and specifies the attributes or relationships to be fetched
      *                in the query results.
@@ -165,6 +430,7 @@ public class Select<T> {
      */
     public Select<T> fetch(Fetcher<T> fetcher) {
         this.fetcher = fetcher;
+        this.fetchPlan = null;
         return this;
     }
 
@@ -176,73 +442,332 @@ public class Select<T> {
      * @return the current instance of `Select&lt;T&gt;`, enabling method chaining.
      */
     public Select<T> fetchOnly(List<Attribute<T, ?>> nodesToFetch) {
-        if (this.resultGraph != null) {
-            LOGGER.warn("Overriding previously defined result graph");
-            this.resultGraph = null;
-        }
         if (this.nodesToFetch != null) {
             LOGGER.warn("Overriding previously defined nodes to fetch");
         }
         this.nodesToFetchOnly = true;
         this.nodesToFetch = nodesToFetch;
+        this.fetchPlan = null;
         return this;
     }
 
     /**
      * Sets the list of attributes to be fetched in addition to EAGER associations.
      * This method modifies the internal fetch configuration of the query.
-     * It overrides any previously defined nodes to fetch or related result graph settings.
+     * It overrides any previously defined nodes to fetch. A result graph and a {@code Fetcher} are merged with them
+     * into a single entity graph, so all the associations are loaded by one query. The result graph has to keep
+     * EAGER associations as well (a load graph), otherwise the fetch strategies conflict and the query fails.
      *
      * @param nodesToFetch the list of attributes to be fetched, represented by `Attribute&lt;T, ?&gt;` objects.
      *                     These attributes define specific nodes in the entity graph to be fetched.
      * @return the current instance of `Select&lt;T&gt;` for method chaining.
      */
     public Select<T> fetchExtra(List<Attribute<T, ?>> nodesToFetch) {
-        if (this.resultGraph != null) {
-            LOGGER.warn("Overriding previously defined result graph");
-            this.resultGraph = null;
-        }
         if (this.nodesToFetch != null) {
             LOGGER.warn("Overriding previously defined nodes to fetch");
         }
         this.nodesToFetchOnly = false;
         this.nodesToFetch = nodesToFetch;
+        this.fetchPlan = null;
+        return this;
+    }
+
+    /**
+     * Loads the association (and optionally a path of nested associations) of the results by separate bulk queries
+     * after the results are loaded, instead of a query per result when the association is accessed (N+1):
+     * <pre>{@code
+     * select()
+     *         .where((cb, root) -> cb.like(root.get(Vendor_.name), "%a%"))
+     *         .thenFetch(Vendor_.models, CarModel_.cars)
+     *         .list();
+     * }</pre>
+     * Unlike fetching by an entity graph, it doesn't multiply rows of the main query, so it works with collections
+     * and pagination as well. Every attribute of the path costs a query per {@value Prefetcher#DEFAULT_IN_LIST_LIMIT}
+     * results. It applies to {@link #list()}, {@link #optional()}, {@link #single()}, {@link #page(int, int)},
+     * {@link #seekPage(String, int)} and {@link #forEachChunk(int, Consumer)}. See {@link Prefetcher}.
+     *
+     * @param attribute association of the queried entity.
+     * @param nested    path of associations of the associated entities.
+     */
+    public Select<T> thenFetch(Attribute<? super T, ?> attribute, Attribute<?, ?>... nested) {
+        final List<Attribute<?, ?>> path = new ArrayList<>();
+        path.add(attribute);
+        path.addAll(Arrays.asList(nested));
+        this.prefetchPaths.add(path);
         return this;
     }
 
+    /**
+     * Turns the query into a constructor projection. Instead of entities, it returns instances of the result class
+     * created by its constructor with values of the given attributes (in the same order):
+     * <pre>{@code
+     * select()
+     *         .where((cb, root) -> cb.like(root.get(Vendor_.name), "%a%"))
+     *         .orderBy(OrderAttr.asc(Vendor_.name))
+     *         .project(VendorSummary.class, Vendor_.id, Vendor_.name)
+     *         .list();
+     * }</pre>
+     * Only the selected columns are read and the results never enter the persistence context, so there's no
+     * entity hydration, dirty checking snapshot or association proxy. See {@link Projection}.
+     */
+    @SafeVarargs
+    public final <R> Projection<T, R> project(Class<R> resultClass, SingularAttribute<? super T, ?>... attributes) {
+        final List<SingularAttribute<? super T, ?>> selectedAttributes = new ArrayList<>(attributes.length);
+        for (SingularAttribute<? super T, ?> attribute : attributes) {
+            selectedAttributes.add(attribute);
+        }
+        return new Projection<>(
+                this,
+                resultClass,
+                (cb, root) -> cb.construct(resultClass, selections(root, selectedAttributes)),
+                attributeNames(selectedAttributes));
+    }
+
+    /**
+     * Turns the query into a {@code Tuple} projection of the given attributes. Tuple elements are aliased by
+     * attribute names, so they can be read by {@code tuple.get(Vendor_.NAME, String.class)}. See {@link Projection}.
+     */
+    @SafeVarargs
+    public final Projection<T, Tuple> selectTuple(SingularAttribute<? super T, ?>... attributes) {
+        final List<SingularAttribute<? super T, ?>> selectedAttributes = new ArrayList<>(attributes.length);
+        for (SingularAttribute<? super T, ?> attribute : attributes) {
+            selectedAttributes.add(attribute);
+        }
+        return new Projection<>(
+                this,
+                Tuple.class,
+                (cb, root) -> cb.tuple(selections(root, selectedAttributes)),
+                attributeNames(selectedAttributes));
+    }
+
+    private static <T> Selection<?>[] selections(Root<T> root, List<SingularAttribute<? super T, ?>> attributes) {
+        return attributes.stream()
+                .map(attribute -> root.get(attribute).alias(attribute.getName()))
+                .toArray(Selection<?>[]::new);
+    }
+
+    private static List<String> attributeNames(List<? extends Attribute<?, ?>> attributes) {
+        return attributes.stream()
+                .map(Attribute::getName)
+                .collect(Collectors.toList());
+    }
+
     public TypedQuery<T> createQuery() {
         return this.createQuery(false);
     }
 
     private TypedQuery<T> createQuery(boolean warnIfNoOrdering) {
+        return this.createQuery(warnIfNoOrdering, this.orderAttrs, null);
+    }
+
+    private TypedQuery<T> createQuery(
+            boolean warnIfNoOrdering,
+            List<OrderAttr<T>> orderAttrs,
+            PredicateBuilder<T> extraPredicateBuilder) {
+        if (warnIfNoOrdering) {
+            this.warnIfNoOrdering(orderAttrs);
+        }
+        final TypedQuery<T> typedQuery = isPlanCacheable(extraPredicateBuilder)
+                ? queryPlanCache.getOrCompile(
+                        em,
+                        queryShape("select", orderAttrs),
+                        entityClass,
+                        () -> this.compileQuery(orderAttrs, null))
+                : this.compileQuery(orderAttrs, extraPredicateBuilder);
+
+        applyLimits(typedQuery);
+        bindParameters(typedQuery);
+        applyFetch(typedQuery);
+        if (readOnly) {
+            JpaUtils.setReadOnly(typedQuery);
+            // An explicit flush mode takes precedence over the one of read-only queries.
+            if (flushMode != null) {
+                typedQuery.setFlushMode(flushMode);
+            }
+        }
+
+        return typedQuery;
+    }
+
+    private TypedQuery<T> compileQuery(
+            List<OrderAttr<T>> orderAttrs,
+            PredicateBuilder<T> extraPredicateBuilder) {
         final CriteriaBuilder cb = em.getCriteriaBuilder();
         final CriteriaQuery<T> q = cb.createQuery(entityClass);
         final Root<T> root = q.from(entityClass);
         final CriteriaQuery<T> criteriaQuery = q.select(root);
 
-        applyWhere(criteriaQuery, cb, root);
+        final ParameterBindings parameterBindings = new ParameterBindings(cb);
+        applyWhereAndOrder(criteriaQuery, cb, root, parameterBindings, orderAttrs, extraPredicateBuilder);
+
+        if (fetchPlan().isFetcherApplied()) {
+            // The FetchCreator must be called before creating a TypedQuery, otherwise it has no effect.
+            fetcher.create(root);
+        }
+
+        if (distinct) {
+            criteriaQuery.distinct(distinct);
+        }
+
+        final TypedQuery<T> typedQuery = em.createQuery(criteriaQuery);
+        parameterBindings.bind(typedQuery);
+        return typedQuery;
+    }
+
+    private void applyWhereAndOrder(
+            CriteriaQuery<?> criteriaQuery,
+            CriteriaBuilder cb,
+            Root<T> root,
+            ParameterBindings parameterBindings,
+            List<OrderAttr<T>> orderAttrs,
+            PredicateBuilder<T> extraPredicateBuilder) {
+        applyWhere(criteriaQuery, cb, root, parameterBindings);
+
+        if (extraPredicateBuilder != null) {
+            and(criteriaQuery, cb, extraPredicateBuilder.build(cb, root));
+        }
 
         if (orderAttrs != null) {
             if (criteriaQuery.getOrderList() != null && !criteriaQuery.getOrderList().isEmpty()) {
                 throw new IllegalStateException("Cannot mix orderAttrs and other ways of setting order.");
             }
-            List<OrderBy> orderBys = this.orderAttrs.stream()
-                    .map(orderAttrs -> orderAttrs.toOrderBy(root))
+            List<OrderBy> orderBys = orderAttrs.stream()
+                    .map(orderAttr -> orderAttr.toOrderBy(root))
                     .collect(Collectors.toList());
             criteriaQuery.orderBy(buildOrderBy(orderBys, cb));
         }
+    }
 
-        if (warnIfNoOrdering && (criteriaQuery.getOrderList() == null || criteriaQuery.getOrderList().isEmpty())) {
+    /**
+     * Checks the ordering by the query definition rather than by the compiled query, since a query taken
+     * from the plan cache is not compiled again. Predicate-and-order and query builders are expected to define
+     * the order, as they are the other ways of setting it.
+     */
+    private void warnIfNoOrdering(List<OrderAttr<T>> orderAttrs) {
+        if ((orderAttrs == null || orderAttrs.isEmpty()) && predicateAndOrderBuilder == null && queryBuilder == null) {
             LOGGER.warn("No ordering set. This may lead to unpredicable page results.");
         }
+    }
 
-        if (this.fetcher != null) {
-            // The FetchCreator must be called before creating a TypedQuery, otherwise it has no effect.
-            fetcher.create(root);
+    /**
+     * Creates a query selecting the given projection instead of entities. Fetching configuration is ignored,
+     * since no entities are loaded.
+     */
+    <R> TypedQuery<R> createProjectionQuery(
+            boolean warnIfNoOrdering,
+            Class<R> resultClass,
+            BiFunction<CriteriaBuilder, Root<T>, Selection<R>> selection,
+            List<String> selectedAttributes) {
+        if (warnIfNoOrdering) {
+            this.warnIfNoOrdering(this.orderAttrs);
         }
+        final TypedQuery<R> typedQuery = isPlanCacheable(null)
+                ? queryPlanCache.getOrCompile(
+                        em,
+                        List.of(queryShape("project", orderAttrs), resultClass, selectedAttributes),
+                        resultClass,
+                        () -> this.compileProjectionQuery(resultClass, selection))
+                : this.compileProjectionQuery(resultClass, selection);
+        applyLimits(typedQuery);
+        bindParameters(typedQuery);
+        return typedQuery;
+    }
 
-        final TypedQuery<T> typedQuery = em.createQuery(criteriaQuery);
+    /**
+     * Executes a projection query measured by the metrics and cached like {@link #single()}.
+     */
+    <R> R singleProjection(
+            Class<R> resultClass,
+            BiFunction<CriteriaBuilder, Root<T>, Selection<R>> selection,
+            List<String> selectedAttributes) {
+        return this.cachedOrLoad(
+                "projectSingle",
+                List.of(resultClass, selectedAttributes),
+                select -> List.of(select.singleProjectionQuery(resultClass, selection, selectedAttributes))).get(0);
+    }
 
+    private <R> R singleProjectionQuery(
+            Class<R> resultClass,
+            BiFunction<CriteriaBuilder, Root<T>, Selection<R>> selection,
+            List<String> selectedAttributes) {
+        final QueryTimer timer = startTimer("projectSingle");
+        final TypedQuery<R> typedQuery = this.createProjectionQuery(false, resultClass, selection, selectedAttributes);
+        timer.built();
+        final R result;
+        try {
+            result = typedQuery.getSingleResult();
+        } catch (NoResultException e) {
+            // Not finding the result is a regular result of the query.
+            timer.finished(0, typedQuery);
+            throw e;
+        } catch (RuntimeException e) {
+            throw timer.failed(e, typedQuery);
+        }
+        timer.finished(1, typedQuery);
+        return result;
+    }
+
+    /**
+     * Executes a projection query measured by the metrics, guarded by the max result size and cached
+     * like {@link #list()}.
+     */
+    <R> List<R> listProjection(
+            String operation,
+            Class<R> resultClass,
+            BiFunction<CriteriaBuilder, Root<T>, Selection<R>> selection,
+            List<String> selectedAttributes) {
+        return this.cachedOrLoad(
+                "projectList",
+                List.of(resultClass, selectedAttributes),
+                select -> select.listProjectionQuery(operation, resultClass, selection, selectedAttributes));
+    }
+
+    private <R> List<R> listProjectionQuery(
+            String operation,
+            Class<R> resultClass,
+            BiFunction<CriteriaBuilder, Root<T>, Selection<R>> selection,
+            List<String> selectedAttributes) {
+        final QueryTimer timer = startTimer(operation);
+        final TypedQuery<R> typedQuery = this.createProjectionQuery(false, resultClass, selection, selectedAttributes);
+        if (maxResultSize != null && typedQuery.getMaxResults() > maxResultSize) {
+            // One more row tells that the max result size is exceeded without loading all the results.
+            typedQuery.setMaxResults(maxResultSize + 1);
+        }
+        timer.built();
+        final List<R> results;
+        try {
+            results = typedQuery.getResultList();
+        } catch (RuntimeException e) {
+            throw timer.failed(e, typedQuery);
+        }
+        timer.finished(results.size(), typedQuery);
+        if (isMaxResultSizeExceeded(results)) {
+            throw new ResultSizeExceededException(warnMaxResultSizeExceeded(operation, "failing"), maxResultSize);
+        }
+        return results;
+    }
+
+    private <R> TypedQuery<R> compileProjectionQuery(
+            Class<R> resultClass,
+            BiFunction<CriteriaBuilder, Root<T>, Selection<R>> selection) {
+        final CriteriaBuilder cb = em.getCriteriaBuilder();
+        final CriteriaQuery<R> q = cb.createQuery(resultClass);
+        final Root<T> root = q.from(entityClass);
+        final CriteriaQuery<R> criteriaQuery = q.select(selection.apply(cb, root));
+
+        final ParameterBindings parameterBindings = new ParameterBindings(cb);
+        applyWhereAndOrder(criteriaQuery, cb, root, parameterBindings, this.orderAttrs, null);
+
+        if (distinct) {
+            criteriaQuery.distinct(distinct);
+        }
+
+        final TypedQuery<R> typedQuery = em.createQuery(criteriaQuery);
+        parameterBindings.bind(typedQuery);
+        return typedQuery;
+    }
+
+    private void applyLimits(TypedQuery<?> typedQuery) {
         if (limit != null) {
             typedQuery.setMaxResults(limit);
         }
@@ -250,21 +775,70 @@ public class Select<T> {
             typedQuery.setFirstResult(offset);
         }
 
-        if (distinct) {
-            criteriaQuery.distinct(distinct);
+        if (fetchSize != null) {
+            typedQuery.setHint(JpaUtils.HIBERNATE_FETCH_SIZE, fetchSize);
         }
+    }
 
-        applyFetch(typedQuery);
+    private boolean isPlanCacheable(PredicateBuilder<T> extraPredicateBuilder) {
+        if (queryPlanCache == null || extraPredicateBuilder != null) {
+            return false;
+        }
+        for (Object lambda : Arrays.asList(
+                predicateBuilder,
+                parameterizedPredicateBuilder,
+                predicateAndOrderBuilder,
+                queryBuilder,
+                fetcher,
+                rangePredicateBuilder)) {
+            if (!Lambdas.isStateless(lambda)) {
+                // Logged once per lambda class, since the same lambda is usually executed over and over again.
+                if (UNCACHEABLE_LAMBDA_CLASSES.add(lambda.getClass())) {
+                    LOGGER.debug("Queries of {} built by {} are not cached, because it captures variables."
+                            + " Use parameters instead.", entityClass.getSimpleName(), lambda.getClass().getName());
+                }
+                return false;
+            }
+        }
+        return true;
+    }
 
-        return typedQuery;
+    private List<Object> queryShape(String queryType, List<OrderAttr<T>> orderAttrs) {
+        return Arrays.asList(
+                queryType,
+                entityClass,
+                distinct,
+                Lambdas.classOf(predicateBuilder),
+                Lambdas.classOf(parameterizedPredicateBuilder),
+                Lambdas.classOf(predicateAndOrderBuilder),
+                Lambdas.classOf(queryBuilder),
+                Lambdas.classOf(fetcher),
+                orderAttrs == null ? null : orderAttrs.stream()
+                        .map(orderAttr -> orderAttr.getAttribute().getName() + " " + orderAttr.getDirection())
+                        .collect(Collectors.toList()));
+    }
+
+    private void bindParameters(TypedQuery<?> typedQuery) {
+        parameters.forEach(typedQuery::setParameter);
+        if (flushMode != null) {
+            typedQuery.setFlushMode(flushMode);
+        }
     }
 
-    private void applyWhere(CriteriaQuery<?> criteriaQuery, CriteriaBuilder cb, Root<T> root) {
-        List<String> appliedTypes = new ArrayList<>(3);
+    private void applyWhere(
+            CriteriaQuery<?> criteriaQuery,
+            CriteriaBuilder cb,
+            Root<T> root,
+            ParameterBindings parameterBindings) {
+        List<String> appliedTypes = new ArrayList<>(4);
         if (predicateBuilder != null) {
             appliedTypes.add("predicateBuilder");
             criteriaQuery.where(predicateBuilder.build(cb, root));
         }
+        if (parameterizedPredicateBuilder != null) {
+            appliedTypes.add("parameterizedPredicateBuilder");
+            criteriaQuery.where(parameterizedPredicateBuilder.build(cb, root, parameterBindings));
+        }
         if (predicateAndOrderBuilder != null) {
             appliedTypes.add("predicateBuilderAndOrderBuilder");
             PredicateAndOrder predicateAndOrder = predicateAndOrderBuilder.build(cb, root);
@@ -280,23 +854,36 @@ public class Select<T> {
         if (appliedTypes.size() > 1) {
             throw new IllegalStateException("Only one of " + String.join(", ", appliedTypes) + " can be set");
         }
+        if (rangePredicateBuilder != null) {
+            and(criteriaQuery, cb, rangePredicateBuilder.build(cb, root));
+        }
+    }
+
+    private static void and(CriteriaQuery<?> criteriaQuery, CriteriaBuilder cb, Predicate predicate) {
+        criteriaQuery.where(criteriaQuery.getRestriction() == null
+                ? predicate
+                : cb.and(criteriaQuery.getRestriction(), predicate));
     }
 
     private void applyFetch(TypedQuery<T> typedQuery) {
-        ResultGraph<T> resultGraph = this.resultGraph;
-        if (nodesToFetch != null) {
-            EntityGraph<T> entityGraph = createEntityGraph(nodesToFetch);
-            this.resultGraph = this.nodesToFetchOnly
-                    ? ResultGraph.specifiedAssociationsOnly(entityGraph)
-                    : ResultGraph.specifiedAndEagerAssociations(entityGraph);
-        }
+        final ResultGraph<T> resultGraph = fetchPlan().getResultGraph();
         if (resultGraph != null) {
             typedQuery.setHint(resultGraph.getType(), resultGraph.getEntityGraph());
         }
     }
 
+    /**
+     * Returns the fetch plan merging all the fetching configuration. It's built once per query definition.
+     */
+    private FetchPlan<T> fetchPlan() {
+        if (fetchPlan == null) {
+            fetchPlan = FetchPlan.of(em, entityClass, resultGraph, fetcher, nodesToFetch, nodesToFetchOnly);
+        }
+        return fetchPlan;
+    }
+
     public Optional<T> optional() {
-        List<T> resultList = this.createQuery().getResultList();
+        List<T> resultList = this.list("optional");
         if (resultList.isEmpty()) {
             return Optional.empty();
         }
@@ -307,47 +894,979 @@ public class Select<T> {
     }
 
     public T single() {
-        return this.createQuery().getSingleResult();
+        return this.cachedOrLoad("single", Select::singleQuery).get(0);
+    }
+
+    private List<T> singleQuery() {
+        final QueryTimer timer = startTimer("single");
+        final TypedQuery<T> typedQuery = this.createQuery();
+        timer.built();
+        final T result;
+        try {
+            result = typedQuery.getSingleResult();
+        } catch (NoResultException e) {
+            // Not finding the entity is a regular result of the query.
+            timer.finished(0, typedQuery);
+            throw e;
+        } catch (RuntimeException e) {
+            throw timer.failed(e, typedQuery);
+        }
+        timer.finished(1, typedQuery);
+        return prefetched(List.of(result));
     }
 
     public List<T> list() {
-        return this.createQuery().getResultList();
+        return this.list("list");
+    }
+
+    private List<T> list(String operation) {
+        return this.cachedOrLoad("list", select -> select.listQuery(operation));
+    }
+
+    private List<T> listQuery(String operation) {
+        final List<T> results = this.listWithinMaxResultSize(operation);
+        if (isMaxResultSizeExceeded(results)) {
+            throw new ResultSizeExceededException(
+                    warnMaxResultSizeExceeded(operation, "failing"),
+                    maxResultSize);
+        }
+        return prefetched(results);
+    }
+
+    /**
+     * Returns the results as a stream. If they fit into {@link #maxResultSize(int)}, they are loaded by one query
+     * like by {@link #list()}. Otherwise, a warning is logged and the results are read again from an open database
+     * cursor as by {@link #stream()}, so they don't have to fit into memory. Without the max result size, all
+     * the results are loaded. The stream has to be closed:
+     * <pre>{@code
+     * try (Stream<Car> cars = select().maxResultSize(1000).listOrStream()) {
+     *     cars.forEach(exporter::write);
+     * }
+     * }</pre>
+     */
+    public Stream<T> listOrStream() {
+        final List<T> results = this.listWithinMaxResultSize("listOrStream");
+        if (isMaxResultSizeExceeded(results)) {
+            warnMaxResultSizeExceeded("listOrStream", "streaming");
+            return this.stream();
+        }
+        return prefetched(results).stream();
+    }
+
+    private List<T> listWithinMaxResultSize(String operation) {
+        final QueryTimer timer = startTimer(operation);
+        final TypedQuery<T> typedQuery = this.createQuery();
+        if (maxResultSize != null && typedQuery.getMaxResults() > maxResultSize) {
+            // One more row tells that the max result size is exceeded without loading all the results.
+            typedQuery.setMaxResults(maxResultSize + 1);
+        }
+        timer.built();
+        final List<T> results;
+        try {
+            results = typedQuery.getResultList();
+        } catch (RuntimeException e) {
+            throw timer.failed(e, typedQuery);
+        }
+        timer.finished(results.size(), typedQuery);
+        return results;
+    }
+
+    private boolean isMaxResultSizeExceeded(List<?> results) {
+        return maxResultSize != null && results.size() > maxResultSize;
+    }
+
+    private String warnMaxResultSizeExceeded(String operation, String fallback) {
+        final String queryShapeId = QueryTimer.queryShapeId(entityClass, operation);
+        LOGGER.warn("Query {} returned more than {} results, {}", queryShapeId, maxResultSize, fallback);
+        return queryShapeId;
+    }
+
+    private QueryTimer startTimer(String operation) {
+        return QueryTimer.start(metrics, LOGGER, entityClass, operation, callSite);
+    }
+
+    /**
+     * Executes {@link #list()} asynchronously on the executor (see {@link #executor(Executor)}). EntityManager is
+     * not thread safe, so the query is executed by a new {@code EntityManager} created by the
+     * {@code EntityManagerFactory} for this task. Therefore, it runs outside the current transaction
+     * (it doesn't see uncommitted changes) and returned entities are detached - associations which should be
+     * accessed have to be fetched. Independent queries can be executed concurrently this way:
+     * <pre>{@code
+     * CompletableFuture<List<Car>> cars = carRepository.select().listAsync();
+     * CompletableFuture<Long> vendorCount = vendorRepository.select().countAsync();
+     * CompletableFuture.allOf(cars, vendorCount).join();
+     * }</pre>
+     * Later changes of this {@code Select} don't affect the running query.
+     */
+    public CompletableFuture<List<T>> listAsync() {
+        return this.async(Select::list);
+    }
+
+    /**
+     * Executes {@link #count()} asynchronously. See {@link #listAsync()}.
+     */
+    public CompletableFuture<Long> countAsync() {
+        return this.async(Select::count);
+    }
+
+    /**
+     * Executes {@link #page(int, int)} asynchronously. See {@link #listAsync()}.
+     */
+    public CompletableFuture<ResultPage<T>> pageAsync(int pageNumber, int pageSize) {
+        return this.pageAsync(pageNumber, pageSize, CountMode.EXACT);
+    }
+
+    /**
+     * Executes {@link #page(int, int, CountMode)} asynchronously. See {@link #listAsync()}.
+     */
+    public CompletableFuture<ResultPage<T>> pageAsync(int pageNumber, int pageSize, CountMode countMode) {
+        return this.async(select -> select.page(pageNumber, pageSize, countMode));
+    }
+
+    private <R> CompletableFuture<R> async(Function<Select<T>, R> operation) {
+        final Select<T> snapshot = new Select<>(this, em, asyncCallSite());
+        return QueryExecutors.supplyAsync(
+                em.getEntityManagerFactory(),
+                taskEm -> operation.apply(new Select<>(snapshot, taskEm, snapshot.callSite)),
+                asyncExecutor());
+    }
+
+    /**
+     * Applies the operation to a copy of this {@code Select} executed by a new {@code EntityManager},
+     * which is closed afterwards.
+     */
+    private <R> R inNewEntityManager(EntityManagerFactory entityManagerFactory, Function<Select<T>, R> operation) {
+        final EntityManager taskEm = entityManagerFactory.createEntityManager();
+        try {
+            return operation.apply(new Select<>(this, taskEm, callSite));
+        } finally {
+            taskEm.close();
+        }
+    }
+
+    private String asyncCallSite() {
+        // The query shape is identified by the calling code, which is not on the stack of the executor's thread.
+        return metrics == null || callSite != null ? callSite : QueryTimer.callSite();
+    }
+
+    private Executor asyncExecutor() {
+        return executor == null ? QueryExecutors.defaultExecutor() : executor;
+    }
+
+    private List<T> prefetched(List<T> results) {
+        for (List<Attribute<?, ?>> path : prefetchPaths) {
+            Prefetcher.prefetchPath(em, entityClass, results, path);
+        }
+        return results;
+    }
+
+    /**
+     * Returns cached results or loads them by a copy of this {@code Select} executed by a separate short-lived
+     * {@code EntityManager}. The results are shared by all the callers, so they mustn't be managed by the caller's
+     * persistence context, which may modify them or load them with changes that are not committed yet.
+     */
+    private <R> List<R> cachedOrLoad(String queryType, Function<Select<T>, List<R>> loader) {
+        return this.cachedOrLoad(queryType, null, loader);
+    }
+
+    /**
+     * @param projectionKey identification of the selected values of a projection or {@code null} for entities.
+     */
+    @SuppressWarnings("unchecked")
+    private <R> List<R> cachedOrLoad(String queryType, Object projectionKey, Function<Select<T>, List<R>> loader) {
+        if (resultCacheRegion == null) {
+            return loader.apply(this);
+        }
+        if (queryResultCache == null) {
+            throw new IllegalStateException("Query result caching requires a QueryResultCache");
+        }
+        final List<Object> key = projectionKey == null
+                ? resultCacheKey(queryType)
+                : List.of(resultCacheKey(queryType), projectionKey);
+        final List<?> cachedResults = queryResultCache.get(resultCacheRegion, key);
+        if (cachedResults != null) {
+            return (List<R>) cachedResults;
+        }
+        final List<R> results = inNewEntityManager(em.getEntityManagerFactory(), loader);
+        queryResultCache.put(resultCacheRegion, key, resultEntityClasses(), results, resultCacheTimeToLive);
+        return results;
+    }
+
+    /**
+     * Returns entity classes the results depend on: the queried one, the ones joined by the criteria and the ones
+     * fetched by the fetch plan. The criteria are built just to find the joins, it's done only when the results
+     * are cached. Entity classes used only by subqueries or loaded by eager associations are not detected.
+     */
+    private Set<Class<?>> resultEntityClasses() {
+        final CriteriaBuilder cb = em.getCriteriaBuilder();
+        final CriteriaQuery<T> criteriaQuery = cb.createQuery(entityClass);
+        final Root<T> root = criteriaQuery.from(entityClass);
+        applyWhere(criteriaQuery, cb, root, new ParameterBindings(cb));
+        if (fetchPlan().isFetcherApplied()) {
+            fetcher.create(root);
+        }
+        final Set<Class<?>> entityClasses = new LinkedHashSet<>();
+        entityClasses.add(entityClass);
+        entityClasses.addAll(JpaUtils.joinedEntityClasses(root));
+        final ResultGraph<T> fetchGraph = fetchPlan().getResultGraph();
+        if (fetchGraph != null) {
+            entityClasses.addAll(JpaUtils.graphEntityClasses(
+                    em.getMetamodel(),
+                    em.getMetamodel().managedType(entityClass),
+                    fetchGraph.getEntityGraph().getAttributeNodes()));
+        }
+        return entityClasses;
+    }
+
+    private List<Object> resultCacheKey(String queryType) {
+        return Arrays.asList(
+                em.getEntityManagerFactory(),
+                queryShape(queryType, orderAttrs),
+                Lambdas.capturedValues(predicateBuilder),
+                Lambdas.capturedValues(parameterizedPredicateBuilder),
+                Lambdas.capturedValues(predicateAndOrderBuilder),
+                Lambdas.capturedValues(queryBuilder),
+                Lambdas.capturedValues(fetcher),
+                new LinkedHashMap<>(parameters),
+                limit,
+                offset,
+                readOnly,
+                resultGraph == null ? null : resultGraph.getType(),
+                resultGraph == null
+                        ? null
+                        : JpaUtils.describeEntityGraph(resultGraph.getEntityGraph().getAttributeNodes()),
+                nodesToFetch == null ? null : attributeNames(nodesToFetch),
+                nodesToFetchOnly,
+                prefetchPaths.stream().map(Select::attributeNames).collect(Collectors.toList()));
+    }
+
+    /**
+     * Returns the results as a stream read from an open database cursor, so they don't have to fit into memory.
+     * Entities are detached from the persistence context once the stream moves past them (or the context is cleared
+     * periodically - see {@link #clearEvery(int)}), so the memory consumption stays flat. Changes made to streamed
+     * entities are therefore not saved. Detaching an entity leaves entities loaded with it (by eager associations
+     * or the fetch configuration) managed, so for such entities, the context is cleared every
+     * {@link #fetchSize(int)} (or {@value #DEFAULT_STREAM_CLEAR_INTERVAL}) entities instead. The last entity
+     * is released when the stream is closed. The stream holds database resources and has to be closed:
+     * <pre>{@code
+     * try (Stream<Car> cars = select().fetchSize(500).stream()) {
+     *     cars.forEach(exporter::write);
+     * }
+     * }</pre>
+     */
+    public Stream<T> stream() {
+        final Stream<T> resultStream = this.createQuery().getResultStream();
+        final Integer clearInterval = clearEvery != null || !this.loadsAssociatedEntities()
+                ? clearEvery
+                : fetchSize != null ? fetchSize : DEFAULT_STREAM_CLEAR_INTERVAL;
+        final ReleasingIterator releasingResults = new ReleasingIterator(resultStream.iterator(), clearInterval);
+        return StreamSupport.stream(
+                        Spliterators.spliteratorUnknownSize(releasingResults, Spliterator.ORDERED | Spliterator.NONNULL),
+                        false)
+                .onClose(() -> {
+                    try {
+                        releasingResults.close();
+                    } finally {
+                        resultStream.close();
+                    }
+                });
+    }
+
+    private boolean loadsAssociatedEntities() {
+        return fetchPlan().getResultGraph() != null
+                || fetchPlan().isFetcherApplied()
+                || JpaUtils.hasEagerAssociations(em.getMetamodel(), entityClass);
+    }
+
+    /**
+     * Releases every entity from the persistence context once the iteration moves past it, either by detaching it
+     * or by clearing the whole context after every {@code clearInterval} entities.
+     */
+    private class ReleasingIterator implements Iterator<T> {
+
+        private final Iterator<T> results;
+        private final Integer clearInterval;
+        private T previous = null;
+        private long processedCount = 0;
+
+        private ReleasingIterator(Iterator<T> results, Integer clearInterval) {
+            this.results = results;
+            this.clearInterval = clearInterval;
+        }
+
+        @Override
+        public boolean hasNext() {
+            releasePrevious();
+            return results.hasNext();
+        }
+
+        @Override
+        public T next() {
+            releasePrevious();
+            previous = results.next();
+            return previous;
+        }
+
+        private void releasePrevious() {
+            if (previous == null) {
+                return;
+            }
+            processedCount++;
+            if (clearInterval == null) {
+                em.detach(previous);
+            } else if (processedCount % clearInterval == 0) {
+                em.clear();
+            }
+            previous = null;
+        }
+
+        private void close() {
+            if (!em.isOpen()) {
+                return;
+            }
+            releasePrevious();
+            if (clearInterval != null && processedCount % clearInterval != 0) {
+                em.clear();
+            }
+        }
+    }
+
+    /**
+     * Passes all the results to the consumer one by one without loading them all into memory. See {@link #stream()}.
+     */
+    public void forEach(Consumer<T> consumer) {
+        try (Stream<T> results = this.stream()) {
+            results.forEach(consumer);
+        }
+    }
+
+    /**
+     * Processes all the results in chunks. See {@link #forEachChunk(int, Consumer, Consumer)}.
+     */
+    public long forEachChunk(int chunkSize, Consumer<List<T>> chunkConsumer) {
+        return this.forEachChunk(chunkSize, chunkConsumer, progress -> {});
+    }
+
+    /**
+     * Processes all the results in chunks, so memory consumption depends just on the chunk size. After each chunk,
+     * the persistence context is flushed (if there is a transaction) and cleared, so changes made by the consumer are
+     * written to the database and processed entities don't pile up in memory. Note that the clear also detaches
+     * all other entities managed by the {@code EntityManager}.
+     * <p>
+     * Chunks are read using keyset pagination ordered by {@code orderBy(OrderAttr...)} with the primary key appended
+     * (see {@link #seekPage(String, int)}), so every chunk costs the same and the processing time grows linearly.
+     * If the order is defined by other means, offset pagination is used as a fallback. In both cases, the consumer
+     * should not modify attributes the query filters or sorts by, since it could make the following chunks skip rows.
+     *
+     * @param chunkSize        maximum number of results passed to the consumer at once.
+     * @param chunkConsumer    consumer of the chunks.
+     * @param progressListener notified after each processed chunk.
+     * @return the number of processed results.
+     */
+    public long forEachChunk(
+            int chunkSize,
+            Consumer<List<T>> chunkConsumer,
+            Consumer<ChunkProgress> progressListener) {
+        if (chunkSize < 1) {
+            throw new IllegalArgumentException("Chunk size must be 1 or higher: " + chunkSize);
+        }
+        final boolean keysetPagination = this.predicateAndOrderBuilder == null && this.queryBuilder == null;
+        final long startNanos = System.nanoTime();
+        long processedCount = 0;
+        int chunkNumber = 0;
+        String continuationToken = null;
+        boolean lastChunk;
+        do {
+            final List<T> chunk;
+            if (keysetPagination) {
+                final CursorPage<T> page = this.seekPage(continuationToken, chunkSize);
+                chunk = page.getResults();
+                continuationToken = page.getNextToken();
+                lastChunk = !page.hasNext();
+            } else {
+                chunk = this.createQuery(true)
+                        .setFirstResult(Math.toIntExact(processedCount))
+                        .setMaxResults(chunkSize)
+                        .getResultList();
+                lastChunk = chunk.size() < chunkSize;
+                prefetched(chunk);
+            }
+            if (chunk.isEmpty()) {
+                break;
+            }
+
+            chunkConsumer.accept(chunk);
+            flushAndClear();
+
+            processedCount += chunk.size();
+            chunkNumber++;
+            final ChunkProgress progress = new ChunkProgress(
+                    chunkNumber,
+                    chunk.size(),
+                    processedCount,
+                    Duration.ofNanos(System.nanoTime() - startNanos));
+            LOGGER.debug("Processed chunk of {}: {}", entityClass.getSimpleName(), progress);
+            progressListener.accept(progress);
+        } while (!lastChunk);
+        return processedCount;
+    }
+
+    private void flushAndClear() {
+        if (em.isJoinedToTransaction()) {
+            em.flush();
+        }
+        em.clear();
+    }
+
+    /**
+     * Processes all the results in batches read according to the scroll mode. After each batch, the persistence
+     * context is flushed (if there is a transaction) and cleared like by {@link #forEachChunk(int, Consumer)}.
+     * <p>
+     * {@link ScrollMode#CURSOR} executes a single query and reads the batches from one forward-only cursor, which is
+     * suitable for very large exports. If no fetch size is set (see {@link #fetchSize(int)}), the batch size is used,
+     * so the JDBC driver doesn't read all the rows at once. Some databases (e.g. PostgreSQL) keep the cursor open
+     * only within a transaction. If the JPA provider doesn't stream results (it uses the default implementation
+     * of {@code TypedQuery.getResultStream()}), the batches are read by keyset pagination instead.
+     * {@link ScrollMode#KEYSET} reads every batch by a separate query - see {@link #forEachChunk(int, Consumer, Consumer)}.
+     *
+     * @param scrollMode    how the results are read.
+     * @param batchSize     maximum number of results passed to the consumer at once.
+     * @param batchConsumer consumer of the batches.
+     * @return the number of processed results.
+     */
+    public long scroll(ScrollMode scrollMode, int batchSize, Consumer<List<T>> batchConsumer) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("Batch size must be 1 or higher: " + batchSize);
+        }
+        if (scrollMode == ScrollMode.KEYSET) {
+            return this.forEachChunk(batchSize, batchConsumer);
+        }
+
+        final QueryTimer timer = startTimer("scroll");
+        final TypedQuery<T> typedQuery = this.createQuery();
+        if (!streamsResults(typedQuery)) {
+            LOGGER.debug("Query of {} doesn't stream results, scrolling by keyset pagination instead",
+                    entityClass.getSimpleName());
+            return this.forEachChunk(batchSize, batchConsumer);
+        }
+        if (fetchSize == null) {
+            typedQuery.setHint(JpaUtils.HIBERNATE_FETCH_SIZE, batchSize);
+        }
+        timer.built();
+
+        long processedCount = 0;
+        try (Stream<T> results = typedQuery.getResultStream()) {
+            final Iterator<T> resultIterator = results.iterator();
+            List<T> batch = new ArrayList<>(batchSize);
+            // The next result is read only after the previous batch is processed and the persistence context cleared.
+            while (resultIterator.hasNext()) {
+                batch.add(resultIterator.next());
+                if (batch.size() == batchSize) {
+                    processedCount += processBatch(batch, batchConsumer);
+                    batch = new ArrayList<>(batchSize);
+                }
+            }
+            if (!batch.isEmpty()) {
+                processedCount += processBatch(batch, batchConsumer);
+            }
+        } catch (RuntimeException e) {
+            throw timer.failed(e, typedQuery);
+        }
+        timer.finished(processedCount, typedQuery);
+        return processedCount;
+    }
+
+    private int processBatch(List<T> batch, Consumer<List<T>> batchConsumer) {
+        batchConsumer.accept(prefetched(batch));
+        flushAndClear();
+        return batch.size();
+    }
+
+    private static boolean streamsResults(TypedQuery<?> typedQuery) {
+        try {
+            // The default implementation in the JPA API just streams the result list.
+            final Class<?> declaringClass = typedQuery.getClass().getMethod("getResultStream").getDeclaringClass();
+            return declaringClass != TypedQuery.class && declaringClass != Query.class;
+        } catch (NoSuchMethodException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Processes all the results in parallel. See {@link #parallelScan(int, int, Consumer, Consumer)}.
+     */
+    public long parallelScan(int partitions, Consumer<List<T>> chunkConsumer) {
+        return this.parallelScan(partitions, DEFAULT_SCAN_CHUNK_SIZE, chunkConsumer, progress -> {});
+    }
+
+    /**
+     * Processes all the results in parallel, for example to reindex or export a whole table. The range of primary key
+     * values of the results (between their minimum and maximum) is split into disjoint partitions of the same width.
+     * Each partition is processed by {@link #forEachChunk(int, Consumer, Consumer)} in its own {@code EntityManager}
+     * on the executor (see {@link #executor(Executor)}), so it uses its own database connection. The partitions run
+     * outside the current transaction and the processed entities are detached, so the scan is meant for reading.
+     * <p>
+     * The chunk consumer is called concurrently by several threads, so it has to be thread safe. The progress
+     * listener is called by one thread at a time with the overall progress. If a partition fails, the others stop
+     * after their current chunk and the first failure is thrown (with the others suppressed).
+     * <p>
+     * The entity has to have a single primary key attribute of an integral type. Partitions are even only if
+     * the primary key values are spread evenly, which is usually the case for generated keys.
+     *
+     * @param partitions       number of partitions processed in parallel.
+     * @param chunkSize        maximum number of results passed to the consumer at once.
+     * @param chunkConsumer    thread safe consumer of the chunks.
+     * @param progressListener notified after each processed chunk.
+     * @return the number of processed results.
+     */
+    public long parallelScan(
+            int partitions,
+            int chunkSize,
+            Consumer<List<T>> chunkConsumer,
+            Consumer<ChunkProgress> progressListener) {
+        if (partitions < 1) {
+            throw new IllegalArgumentException("Number of partitions must be 1 or higher: " + partitions);
+        }
+        if (chunkSize < 1) {
+            throw new IllegalArgumentException("Chunk size must be 1 or higher: " + chunkSize);
+        }
+        final SingularAttribute<? super T, ?> idAttribute = integralIdAttribute();
+        final long[] idRange = this.idRange(idAttribute);
+        if (idRange == null) {
+            return 0;
+        }
+        final List<long[]> partitionRanges = partitionRanges(idRange[0], idRange[1], partitions);
+        LOGGER.debug("Scanning {} IDs from {} to {} in {} partitions",
+                entityClass.getSimpleName(), idRange[0], idRange[1], partitionRanges.size());
+
+        final EntityManagerFactory entityManagerFactory = em.getEntityManagerFactory();
+        final Select<T> snapshot = new Select<>(this, em, asyncCallSite());
+        final long startNanos = System.nanoTime();
+        final AtomicLong processedCount = new AtomicLong();
+        final AtomicInteger chunkNumber = new AtomicInteger();
+        final AtomicBoolean failed = new AtomicBoolean();
+        final Consumer<List<T>> stoppingChunkConsumer = chunk -> {
+            if (failed.get()) {
+                throw new CancellationException("Scan of " + entityClass.getSimpleName()
+                        + " stopped, because another partition failed");
+            }
+            chunkConsumer.accept(chunk);
+        };
+        final Consumer<ChunkProgress> mergingProgressListener = progress -> {
+            synchronized (processedCount) {
+                final ChunkProgress overallProgress = new ChunkProgress(
+                        chunkNumber.incrementAndGet(),
+                        progress.getChunkSize(),
+                        processedCount.addAndGet(progress.getChunkSize()),
+                        Duration.ofNanos(System.nanoTime() - startNanos));
+                progressListener.accept(overallProgress);
+            }
+        };
+
+        final List<CompletableFuture<Long>> partitionResults = new ArrayList<>(partitionRanges.size());
+        for (long[] partitionRange : partitionRanges) {
+            final Number from = toIdType(idAttribute, partitionRange[0]);
+            final Number to = toIdType(idAttribute, partitionRange[1]);
+            partitionResults.add(CompletableFuture.supplyAsync(
+                    () -> {
+                        try {
+                            return snapshot.inNewEntityManager(entityManagerFactory, partition -> {
+                                partition.rangePredicateBuilder = (cb, root) -> cb.and(
+                                        cb.ge(root.<Number>get(idAttribute.getName()), from),
+                                        cb.le(root.<Number>get(idAttribute.getName()), to));
+                                return partition.forEachChunk(chunkSize, stoppingChunkConsumer, mergingProgressListener);
+                            });
+                        } catch (RuntimeException | Error e) {
+                            failed.set(true);
+                            throw e;
+                        }
+                    },
+                    asyncExecutor()));
+        }
+        return joinPartitions(partitionResults);
+    }
+
+    private static long joinPartitions(List<CompletableFuture<Long>> partitionResults) {
+        long processedCount = 0;
+        Throwable failure = null;
+        for (CompletableFuture<Long> partitionResult : partitionResults) {
+            try {
+                processedCount += partitionResult.join();
+            } catch (CompletionException e) {
+                final Throwable cause = e.getCause() == null ? e : e.getCause();
+                if (failure == null || failure instanceof CancellationException) {
+                    failure = cause;
+                } else if (!(cause instanceof CancellationException)) {
+                    failure.addSuppressed(cause);
+                }
+            }
+        }
+        if (failure instanceof RuntimeException) {
+            throw (RuntimeException) failure;
+        }
+        if (failure instanceof Error) {
+            throw (Error) failure;
+        }
+        if (failure != null) {
+            throw new CompletionException(failure);
+        }
+        return processedCount;
+    }
+
+    private SingularAttribute<? super T, ?> integralIdAttribute() {
+        final EntityType<T> entityType = em.getMetamodel().entity(entityClass);
+        final Class<?> idType = entityType.hasSingleIdAttribute() ? entityType.getIdType().getJavaType() : null;
+        if (!INTEGRAL_ID_TYPES.contains(idType)) {
+            throw new IllegalStateException("Parallel scan requires an entity with a single ID attribute"
+                    + " of an integral type: " + entityType.getName());
+        }
+        return entityType.getId(idType);
+    }
+
+    /**
+     * @return minimum and maximum primary key values of the results or {@code null} if there are no results.
+     */
+    private long[] idRange(SingularAttribute<? super T, ?> idAttribute) {
+        final CriteriaBuilder cb = em.getCriteriaBuilder();
+        final CriteriaQuery<Object[]> q = cb.createQuery(Object[].class);
+        final Root<T> root = q.from(entityClass);
+        final Path<Number> id = root.get(idAttribute.getName());
+        q.multiselect(cb.min(id), cb.max(id));
+        final ParameterBindings parameterBindings = new ParameterBindings(cb);
+        applyWhere(q, cb, root, parameterBindings);
+        final TypedQuery<Object[]> typedQuery = em.createQuery(q);
+        parameterBindings.bind(typedQuery);
+        bindParameters(typedQuery);
+        final Object[] minAndMax = typedQuery.getSingleResult();
+        if (minAndMax[0] == null) {
+            return null;
+        }
+        return new long[] {((Number) minAndMax[0]).longValue(), ((Number) minAndMax[1]).longValue()};
+    }
+
+    private static List<long[]> partitionRanges(long min, long max, int partitions) {
+        final long idCount = Math.addExact(Math.subtractExact(max, min), 1);
+        final long width = idCount / partitions + (idCount % partitions == 0 ? 0 : 1);
+        final List<long[]> ranges = new ArrayList<>(partitions);
+        for (long from = min; ranges.size() < partitions && from <= max; from += width) {
+            ranges.add(new long[] {from, Math.min(max, from + width - 1)});
+        }
+        return ranges;
+    }
+
+    private static Number toIdType(SingularAttribute<?, ?> idAttribute, long value) {
+        final Class<?> idType = idAttribute.getJavaType();
+        if (idType == Integer.class || idType == int.class) {
+            return (int) value;
+        }
+        if (idType == Short.class || idType == short.class) {
+            return (short) value;
+        }
+        if (idType == Byte.class || idType == byte.class) {
+            return (byte) value;
+        }
+        return value;
     }
 
     public ResultPage<T> page(int pageNumber, int pageSize) {
+        return this.page(pageNumber, pageSize, CountMode.EXACT);
+    }
+
+    /**
+     * Returns the requested page of results with the total count obtained according to the count mode.
+     *
+     * @param countMode defines whether and how the total count is computed. See {@link CountMode}.
+     */
+    public ResultPage<T> page(int pageNumber, int pageSize, CountMode countMode) {
+        final ResultPage<T> page = this.fetchesCollection()
+                ? this.page(pageNumber, pageSize, countMode, (firstResult, maxResults) ->
+                        this.listInTwoPhases("page", true, this.orderAttrs, null, firstResult, maxResults))
+                : this.page(pageNumber, pageSize, countMode, () -> this.createQuery(true));
+        prefetched(page.getResults());
+        return page;
+    }
+
+    <R> ResultPage<R> page(
+            int pageNumber,
+            int pageSize,
+            CountMode countMode,
+            Supplier<TypedQuery<R>> querySupplier) {
+        return this.page(pageNumber, pageSize, countMode, (firstResult, maxResults) -> {
+            final QueryTimer timer = startTimer("page");
+            final TypedQuery<R> typedQuery = querySupplier.get()
+                    .setFirstResult(firstResult)
+                    .setMaxResults(maxResults);
+            timer.built();
+            final List<R> resultList;
+            try {
+                resultList = typedQuery.getResultList();
+            } catch (RuntimeException e) {
+                throw timer.failed(e, typedQuery);
+            }
+            timer.finished(resultList.size(), typedQuery);
+            return resultList;
+        });
+    }
+
+    /**
+     * @param pageLoader loads the results of the page given the first result position and the maximum results.
+     */
+    private <R> ResultPage<R> page(
+            int pageNumber,
+            int pageSize,
+            CountMode countMode,
+            BiFunction<Integer, Integer, List<R>> pageLoader) {
         if (pageNumber < 1) {
             throw new IllegalArgumentException("Page number must be 1 or higher: " + pageNumber);
         }
         if (pageSize < 1) {
             throw new IllegalArgumentException("Page size must be 1 or higher: " + pageSize);
         }
+        Objects.requireNonNull(countMode, "Count mode must not be null");
+
+        final CompletableFuture<Long> parallelCount = countMode == CountMode.PARALLEL
+                ? this.countAsync()
+                : null;
+
+        final List<R> resultList;
+        try {
+            resultList = pageLoader.apply(
+                    (pageNumber - 1) * pageSize,
+                    countMode == CountMode.ESTIMATE ? pageSize + 1 : pageSize);
+        } catch (RuntimeException e) {
+            if (parallelCount != null) {
+                // Cancels the count query if the JPA provider supports it, see QueryExecutors.supplyAsync.
+                parallelCount.cancel(true);
+            }
+            throw e;
+        }
 
-        final TypedQuery<T> typedQuery = this.createQuery(true);
+        switch (countMode) {
+            case PARALLEL:
+                return new ResultPage<>(parallelCount, pageNumber, pageSize, resultList);
+            case ESTIMATE:
+                return ResultPage.estimated(pageNumber, pageSize, resultList);
+            case NONE:
+                return ResultPage.withoutCount(pageNumber, pageSize, resultList);
+            default:
+                return new ResultPage<>(this.count(), pageNumber, pageSize, resultList);
+        }
+    }
+
+    /**
+     * Returns the first page of results using keyset (seek) pagination. See {@link #seekPage(String, int)}.
+     */
+    public CursorPage<T> seekPage(int pageSize) {
+        return this.seekPage(null, pageSize);
+    }
+
+    /**
+     * Returns a page of results using keyset (seek) pagination. Instead of skipping rows using an offset,
+     * sort attribute values of the last row of the previous page are turned into a predicate, so fetching
+     * the page N costs the same as fetching the first one.
+     * <p>
+     * The order has to be defined by {@code orderBy(OrderAttr...)}. The primary key is appended to it
+     * as the last sort attribute to make the order total. Sort attributes must not contain null values.
+     *
+     * @param continuationToken the token returned by {@link CursorPage#getNextToken()} of the previous page,
+     *                          or {@code null} to get the first page.
+     * @param pageSize          maximum number of results in the page.
+     * @return the requested page with a token to the following one.
+     */
+    public CursorPage<T> seekPage(String continuationToken, int pageSize) {
+        if (pageSize < 1) {
+            throw new IllegalArgumentException("Page size must be 1 or higher: " + pageSize);
+        }
+
+        final Keyset<T> keyset = Keyset.of(this.orderAttrs, em.getMetamodel().entity(entityClass));
+        final List<Object> lastKey = continuationToken == null ? null : keyset.decode(continuationToken);
+
+        final PredicateBuilder<T> seekPredicateBuilder = lastKey == null
+                ? null
+                : (cb, root) -> keyset.seekPredicate(cb, root, lastKey);
+        final List<T> resultList = this.fetchesCollection()
+                ? this.listInTwoPhases("seekPage", false, keyset.getOrderAttrs(), seekPredicateBuilder, 0, pageSize + 1)
+                : this.createQuery(false, keyset.getOrderAttrs(), seekPredicateBuilder)
+                        .setFirstResult(0)
+                        .setMaxResults(pageSize + 1)
+                        .getResultList();
+
+        if (resultList.size() <= pageSize) {
+            return new CursorPage<>(prefetched(resultList), pageSize, null);
+        }
+        final List<T> pageResults = prefetched(new ArrayList<>(resultList.subList(0, pageSize)));
+        final String nextToken = keyset.encode(keyset.keyOf(
+                pageResults.get(pageSize - 1),
+                em.getEntityManagerFactory().getPersistenceUnitUtil()));
+        return new CursorPage<>(pageResults, pageSize, nextToken);
+    }
+
+    /**
+     * Fetching a collection multiplies rows of the root entity, so the JPA provider can't limit the rows by SQL
+     * and it paginates in memory after reading all of them (Hibernate warns by HHH90003004).
+     */
+    private boolean fetchesCollection() {
+        final ResultGraph<T> fetchGraph = fetchPlan().getResultGraph();
+        if (fetchGraph == null) {
+            return false;
+        }
+        final Metamodel metamodel = em.getMetamodel();
+        return JpaUtils.containsPluralAttribute(
+                metamodel,
+                metamodel.managedType(entityClass),
+                fetchGraph.getEntityGraph().getAttributeNodes());
+    }
 
-        final List<T> resultList = typedQuery
-                .setFirstResult((pageNumber - 1) * pageSize)
-                .setMaxResults(pageSize)
-                .getResultList();
+    /**
+     * Reads a page of results fetching a collection in two phases, as {@code BasicRepository.pageWhere} does.
+     * The first query selects just a page of distinct primary keys in the requested order (sort expressions
+     * have to be selected too for DISTINCT to work), the second one loads entities with those keys using
+     * the fetch plan. Then the entities are sorted by the key order.
+     * <p>
+     * A {@link Fetcher} creating inner join fetches is not part of the fetch plan, so it doesn't trigger this.
+     */
+    private List<T> listInTwoPhases(
+            String operation,
+            boolean warnIfNoOrdering,
+            List<OrderAttr<T>> orderAttrs,
+            PredicateBuilder<T> extraPredicateBuilder,
+            int firstResult,
+            int maxResults) {
+        if (warnIfNoOrdering) {
+            this.warnIfNoOrdering(orderAttrs);
+        }
+        final QueryTimer timer = startTimer(operation);
+        final EntityType<T> entityType = em.getMetamodel().entity(entityClass);
+        final String idName = entityType.getId(entityType.getIdType().getJavaType()).getName();
+        final CriteriaBuilder cb = em.getCriteriaBuilder();
+        final CriteriaQuery<Tuple> pkQuery = cb.createTupleQuery();
+        final Root<T> pkRoot = pkQuery.from(entityClass);
+        final ParameterBindings parameterBindings = new ParameterBindings(cb);
+        applyWhereAndOrder(pkQuery, cb, pkRoot, parameterBindings, orderAttrs, extraPredicateBuilder);
+        final List<Selection<?>> selections = new ArrayList<>();
+        selections.add(pkRoot.get(idName));
+        pkQuery.getOrderList().forEach(order -> selections.add(order.getExpression()));
+        pkQuery.multiselect(selections).distinct(true);
 
-        final long totalCount = this.count();
+        final TypedQuery<Tuple> pkTypedQuery = em.createQuery(pkQuery)
+                .setFirstResult(firstResult)
+                .setMaxResults(maxResults);
+        parameterBindings.bind(pkTypedQuery);
+        bindParameters(pkTypedQuery);
+        timer.built();
+        final List<Object> pks;
+        try {
+            pks = pkTypedQuery.getResultList().stream()
+                    .map(row -> row.get(0))
+                    .distinct()
+                    .collect(Collectors.toList());
+        } catch (RuntimeException e) {
+            throw timer.failed(e, pkTypedQuery);
+        }
+        if (pks.isEmpty()) {
+            timer.finished(0, pkTypedQuery);
+            return new ArrayList<>();
+        }
 
-        return new ResultPage<>(totalCount, pageNumber, pageSize, resultList);
+        final CriteriaQuery<T> q = cb.createQuery(entityClass);
+        final Root<T> root = q.from(entityClass);
+        final TypedQuery<T> typedQuery = em.createQuery(q.select(root).where(root.get(idName).in(pks)));
+        applyFetch(typedQuery);
+        if (readOnly) {
+            JpaUtils.setReadOnly(typedQuery);
+        }
+        final PersistenceUnitUtil unitUtil = em.getEntityManagerFactory().getPersistenceUnitUtil();
+        final Map<Object, T> entitiesByPk = new HashMap<>();
+        try {
+            typedQuery.getResultList().forEach(entity -> entitiesByPk.put(unitUtil.getIdentifier(entity), entity));
+        } catch (RuntimeException e) {
+            throw timer.failed(e, typedQuery);
+        }
+        final List<T> resultList = pks.stream()
+                .map(entitiesByPk::get)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+        timer.finished(resultList.size(), typedQuery);
+        return resultList;
     }
 
     public long count() {
+        return this.cachedOrLoad("count", select -> List.of(select.countQuery())).get(0);
+    }
+
+    private long countQuery() {
+        final QueryTimer timer = startTimer("count");
+        final TypedQuery<Long> typedQuery = isPlanCacheable(null)
+                ? queryPlanCache.getOrCompile(
+                        em,
+                        queryShape("count", null),
+                        Long.class,
+                        this::compileCountQuery)
+                : this.compileCountQuery();
+        bindParameters(typedQuery);
+        timer.built();
+        final long count;
+        try {
+            count = typedQuery.getSingleResult();
+        } catch (RuntimeException e) {
+            throw timer.failed(e, typedQuery);
+        }
+        timer.finished(count, typedQuery);
+        return count;
+    }
+
+    private TypedQuery<Long> compileCountQuery() {
         final CriteriaBuilder cb = em.getCriteriaBuilder();
         final CriteriaQuery<Long> q = cb.createQuery(Long.class);
         final Root<T> root = q.from(entityClass);
         final CriteriaQuery<Long> criteriaQuery = q.select(distinct ? cb.countDistinct(root) : cb.count(root));
-        applyWhere(criteriaQuery, cb, root);
-        return em.createQuery(criteriaQuery)
-                .getSingleResult();
+        final ParameterBindings parameterBindings = new ParameterBindings(cb);
+        applyWhere(criteriaQuery, cb, root, parameterBindings);
+        final TypedQuery<Long> typedQuery = em.createQuery(criteriaQuery);
+        parameterBindings.bind(typedQuery);
+        return typedQuery;
+    }
+
+    /**
+     * Checks whether there is any result. Unlike {@code count() > 0}, the database stops at the first matching row
+     * and unlike {@link #optional()}, no entity is loaded - the query selects just a constant limited to one row.
+     */
+    public boolean exists() {
+        return this.cachedOrLoad("exists", select -> List.of(select.existsQuery())).get(0);
+    }
+
+    private boolean existsQuery() {
+        final QueryTimer timer = startTimer("exists");
+        final TypedQuery<Integer> typedQuery = isPlanCacheable(null)
+                ? queryPlanCache.getOrCompile(
+                        em,
+                        queryShape("exists", null),
+                        Integer.class,
+                        this::compileExistsQuery)
+                : this.compileExistsQuery();
+        bindParameters(typedQuery);
+        typedQuery.setMaxResults(1);
+        timer.built();
+        final boolean exists;
+        try {
+            exists = !typedQuery.getResultList().isEmpty();
+        } catch (RuntimeException e) {
+            throw timer.failed(e, typedQuery);
+        }
+        timer.finished(exists ? 1 : 0, typedQuery);
+        return exists;
     }
 
-    private EntityGraph<T> createEntityGraph(List<Attribute<T, ?>> nodesToAdd) {
-        EntityGraph<T> eg = em.createEntityGraph(entityClass);
-        nodesToAdd.forEach(eg::addAttributeNodes);
-        return eg;
+    private TypedQuery<Integer> compileExistsQuery() {
+        final CriteriaBuilder cb = em.getCriteriaBuilder();
+        final CriteriaQuery<Integer> q = cb.createQuery(Integer.class);
+        final Root<T> root = q.from(entityClass);
+        final CriteriaQuery<Integer> criteriaQuery = q.select(cb.literal(1));
+        final ParameterBindings parameterBindings = new ParameterBindings(cb);
+        applyWhere(criteriaQuery, cb, root, parameterBindings);
+        final TypedQuery<Integer> typedQuery = em.createQuery(criteriaQuery);
+        parameterBindings.bind(typedQuery);
+        return typedQuery;
     }
 
     private static List<Order> buildOrderBy(List<OrderBy> orderByList, CriteriaBuilder cb) {
@@ -1,28 +1,60 @@
 package io.github.janhalasa.jparepositories;
 
+import io.github.janhalasa.jparepositories.dto.VendorSummary;
 import io.github.janhalasa.jparepositories.entity.Car;
 import io.github.janhalasa.jparepositories.entity.CarModel;
 import io.github.janhalasa.jparepositories.entity.Vendor;
+import io.github.janhalasa.jparepositories.entity.Vendor_;
+import io.github.janhalasa.jparepositories.metrics.Histogram;
+import io.github.janhalasa.jparepositories.metrics.HistogramRepositoryMetrics;
+import io.github.janhalasa.jparepositories.metrics.QueryStatistics;
+import io.github.janhalasa.jparepositories.metrics.RepositoryMetrics;
+import io.github.janhalasa.jparepositories.model.CountMode;
+import io.github.janhalasa.jparepositories.model.ResultGraph;
+import io.github.janhalasa.jparepositories.model.ScrollMode;
 import io.github.janhalasa.jparepositories.repository.CarModelRepository;
 import io.github.janhalasa.jparepositories.repository.CarRepository;
 import io.github.janhalasa.jparepositories.repository.VendorRepository;
+import io.github.janhalasa.jparepositories.select.LruQueryResultCache;
+import io.github.janhalasa.jparepositories.select.QueryExecutors;
+import io.github.janhalasa.jparepositories.select.QueryPlanCache;
+import jakarta.persistence.EntityGraph;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.EntityNotFoundException;
+import jakarta.persistence.FlushModeType;
+import jakarta.persistence.NoResultException;
 import jakarta.persistence.NonUniqueResultException;
 import jakarta.persistence.OptimisticLockException;
 import jakarta.persistence.Persistence;
 import jakarta.persistence.PersistenceUnitUtil;
+import jakarta.persistence.Tuple;
+import org.hibernate.Session;
+import org.hibernate.cfg.AvailableSettings;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 /**
@@ -35,6 +67,7 @@ public class RepositoryTest {
 
 	private EntityManager em;
 	private PersistenceUnitUtil unitUtil;
+	private SqlStatementRecorder sqlRecorder;
 
 	private VendorRepository vendorRepository;
 	private CarRepository carRepository;
@@ -43,7 +76,10 @@ public class RepositoryTest {
 	@BeforeEach
 	void beforeEach() {
 		if (this.em == null) {
-			EntityManagerFactory entityManagerFactory = Persistence.createEntityManagerFactory("default");
+			this.sqlRecorder = new SqlStatementRecorder();
+			EntityManagerFactory entityManagerFactory = Persistence.createEntityManagerFactory(
+					"default",
+					Map.of(AvailableSettings.STATEMENT_INSPECTOR, this.sqlRecorder));
 			this.em = entityManagerFactory.createEntityManager();
 			this.unitUtil = em.getEntityManagerFactory().getPersistenceUnitUtil();
 
@@ -151,6 +187,466 @@ public class RepositoryTest {
 		});
 	}
 
+	@Test
+	void givenStreamWhere_whenConsumed_thenEntitiesDetachedBehindTheStream() {
+		List<Car> cars;
+		try (Stream<Car> carStream = this.carRepository.streamByColor("green")) {
+			cars = carStream
+					.peek(car -> assertTrue(em.contains(car)))
+					.collect(Collectors.toList());
+		}
+		assertEquals(3, cars.size());
+		cars.forEach(car -> {
+			assertFalse(em.contains(car));
+			// eagerly loaded models are released too
+			assertFalse(em.contains(car.getModel()));
+		});
+	}
+
+	@Test
+	void givenStreamClosedEarly_whenStreamed_thenLastEntityReleased() {
+		Vendor vendor;
+		try (Stream<Vendor> vendorStream = this.vendorRepository.streamWhereNameContains("a")) {
+			vendor = vendorStream.findFirst().orElseThrow();
+			assertTrue(em.contains(vendor));
+		}
+		assertFalse(em.contains(vendor));
+	}
+
+	@Test
+	void givenClearEvery_whenForEach_thenAllResultsConsumed() {
+		List<Long> carIds = new ArrayList<>();
+		this.carRepository.forEachOrderedById(4, car -> {
+			assertTrue(em.contains(car));
+			carIds.add(car.getId());
+		});
+		assertEquals(List.of(1L, 2L, 3L, 4L, 5L, 6L), carIds);
+	}
+
+	@Test
+	void givenModifyingConsumer_whenForEachChunk_thenChangesFlushedAfterEachChunk() {
+		rollback(() -> {
+			List<ChunkProgress> progress = new ArrayList<>();
+			long processedCount = this.carModelRepository.renameAllInChunks(3, progress::add);
+
+			assertEquals(4, processedCount);
+			assertEquals(2, progress.size());
+			assertEquals(3, progress.get(0).getChunkSize());
+			assertEquals(1, progress.get(1).getChunkSize());
+			assertEquals(4, progress.get(1).getProcessedCount());
+			assertEquals(
+					List.of("CLIO", "DUSTER", "ESPACE", "MEGANE"),
+					this.carModelRepository.findNamesInChunksOrderedByNameDesc(10).stream()
+							.sorted()
+							.collect(Collectors.toList()));
+		});
+	}
+
+	@Test
+	void givenOrderByPredicateAndOrderBuilder_whenForEachChunk_thenAllResultsProcessedInOrder() {
+		assertEquals(
+				List.of("Megane", "Espace", "Duster", "Clio"),
+				this.carModelRepository.findNamesInChunksOrderedByNameDesc(3));
+	}
+
+	@Test
+	void givenBatchSize_whenPersistAll_thenEntitiesPersistedInBatches() {
+		rollback(() -> {
+			CarModel megane = this.carModelRepository.loadByPk(1L);
+			List<Car> newCars = List.of("black", "white", "silver", "black", "white").stream()
+					.map(color -> new Car(color, megane))
+					.collect(Collectors.toList());
+
+			List<Integer> batchSizes = new ArrayList<>();
+			BatchResult result = this.carRepository.persistAll(newCars, 2, batch -> {
+				batchSizes.add(batch.size());
+				batch.forEach(car -> assertTrue(em.contains(car)));
+			});
+
+			assertEquals(3, result.getBatchCount());
+			assertEquals(5, result.getEntityCount());
+			assertEquals(List.of(2, 2, 1), batchSizes);
+			newCars.forEach(car -> {
+				assertNotNull(car.getId());
+				assertFalse(em.contains(car));
+			});
+			assertEquals(2, this.carRepository.findByColor("black").size());
+		});
+	}
+
+	@Test
+	void givenDetachedEntities_whenMergeAll_thenChangesSaved() {
+		rollback(() -> {
+			List<CarModel> models = this.carModelRepository.findAll();
+			em.clear();
+			models.forEach(model -> model.setName(model.getName() + " II"));
+
+			BatchResult result = this.carModelRepository.mergeAll(models, 3);
+
+			assertEquals(2, result.getBatchCount());
+			assertEquals(4, result.getEntityCount());
+			this.carModelRepository.findAll().forEach(model -> assertTrue(model.getName().endsWith(" II")));
+		});
+	}
+
+	@Test
+	void givenInListLimit_whenRemoveAllByPk_thenEntitiesRemovedInChunksAndEvicted() {
+		rollback(() -> {
+			Car loadedCar = this.carRepository.loadByPk(2L);
+			Car car3Proxy = this.em.getReference(Car.class, 3L);
+
+			this.sqlRecorder.clear();
+			int removedCount = this.carRepository.removeAllByIds(List.of(1L, 2L, 3L, 999L), 2);
+
+			assertEquals(3, removedCount);
+			assertEquals(2, this.sqlRecorder.count());
+			assertFalse(em.contains(loadedCar));
+			assertFalse(em.contains(car3Proxy));
+			assertEquals(Optional.empty(), this.carRepository.getByPk(2L));
+			assertEquals(3, this.carRepository.findAll().size());
+		});
+	}
+
+	@Test
+	void givenIncrementVersion_whenUpdateWhere_thenEntitiesUpdatedAndVersionIncremented() {
+		rollback(() -> {
+			Vendor renault = this.vendorRepository.loadByName(RENAULT);
+			Integer originalVersion = renault.getVersion();
+
+			int updatedCount = this.vendorRepository.renameWhereNameContains("ault", "Alpine");
+			em.clear();
+
+			assertEquals(1, updatedCount);
+			Vendor alpine = this.vendorRepository.loadByPk(renault.getId());
+			assertEquals("Alpine", alpine.getName());
+			assertEquals(originalVersion + 1, alpine.getVersion());
+			Assertions.assertThrows(
+					OptimisticLockException.class,
+					() -> this.vendorRepository.loadByPk(renault.getId(), originalVersion));
+		});
+	}
+
+	@Test
+	void whenGetAllByPk_thenManagedEntitiesReusedAndMissesLoadedByOnePaddedQuery() {
+		Car car1 = this.carRepository.loadByPk(1L);
+		Car car2Proxy = this.em.getReference(Car.class, 2L);
+		this.sqlRecorder.clear();
+
+		Map<Long, Car> cars = this.carRepository.getAllByPk(List.of(3L, 1L, 99L, 2L, 4L, 3L));
+
+		assertEquals(List.of(3L, 1L, 2L, 4L), new ArrayList<>(cars.keySet()));
+		assertTrue(cars.get(1L) == car1);
+		assertTrue(this.em.contains(car2Proxy));
+		assertEquals(3L, cars.get(3L).getId());
+		List<String> inQueries = this.sqlRecorder.getStatements().stream()
+				.filter(sql -> sql.contains(" in "))
+				.collect(Collectors.toList());
+		assertEquals(1, inQueries.size());
+		// 4 distinct primary keys not managed yet (the uninitialized proxy is loaded)
+		assertEquals(4, inQueries.get(0).chars().filter(c -> c == '?').count());
+	}
+
+	@Test
+	void givenNonExistingPk_whenLoadAllByPk_thenFails() {
+		assertEquals(
+				List.of(2L, 1L, 2L),
+				this.carRepository.loadAllByPk(List.of(2L, 1L, 2L)).stream().map(Car::getId).collect(Collectors.toList()));
+		Assertions.assertThrows(
+				EntityNotFoundException.class,
+				() -> this.carRepository.loadAllByPk(List.of(1L, 99L)));
+	}
+
+	@Test
+	void whenProject_thenDtosReturnedWithoutLoadingEntities() {
+		List<VendorSummary> summaries = this.vendorRepository.findSummariesWhereNameContains("e");
+		List<String> expectedNames = this.vendorRepository.selectWhereNameContains("e").stream()
+				.map(Vendor::getName)
+				.sorted()
+				.collect(Collectors.toList());
+		em.clear();
+
+		assertEquals(expectedNames, summaries.stream().map(VendorSummary::getName).collect(Collectors.toList()));
+
+		this.sqlRecorder.clear();
+		summaries = this.vendorRepository.findSummariesWhereNameContains("e");
+		assertEquals(1, this.sqlRecorder.count());
+		assertFalse(unitUtil.isLoaded(em.getReference(Vendor.class, summaries.get(0).getId())));
+	}
+
+	@Test
+	void whenSelectTuple_thenAttributesAccessibleByName() {
+		List<Tuple> tuples = this.vendorRepository.findIdsAndNamesWhereNameContains("e");
+
+		assertEquals(6, tuples.size());
+		assertEquals(
+				this.vendorRepository.findSummariesWhereNameContains("e").stream()
+						.map(VendorSummary::getName)
+						.collect(Collectors.toList()),
+				tuples.stream().map(tuple -> tuple.get(Vendor_.NAME, String.class)).collect(Collectors.toList()));
+		assertNotNull(tuples.get(0).get(Vendor_.ID, Long.class));
+	}
+
+	@Test
+	void whenPageProjection_thenSameResultsAsEntityPage() {
+		ResultPage<Vendor> entityPage = this.vendorRepository.selectPageWhereNameContainsA(2, 4);
+		ResultPage<VendorSummary> summaryPage = this.vendorRepository.pageSummariesWhereNameContainsA(2, 4);
+
+		assertEquals(entityPage.getTotalCount(), summaryPage.getTotalCount());
+		assertEquals(
+				entityPage.getResults().stream().map(Vendor::getId).collect(Collectors.toList()),
+				summaryPage.getResults().stream().map(VendorSummary::getId).collect(Collectors.toList()));
+	}
+
+	@Test
+	void givenReadOnlyQuery_whenEntityModified_thenChangeNotFlushed() {
+		rollback(() -> {
+			Session session = em.unwrap(Session.class);
+			List<Vendor> selectedVendors = this.vendorRepository.selectReadOnlyWhereNameContains("ault");
+			List<Vendor> foundVendors = this.vendorRepository.findReadOnlyWhereNameContains("ault");
+
+			assertEquals(1, selectedVendors.size());
+			assertTrue(selectedVendors.get(0) == foundVendors.get(0));
+			assertTrue(session.isReadOnly(selectedVendors.get(0)));
+
+			selectedVendors.get(0).setName("Alpine");
+			em.flush();
+			em.clear();
+
+			assertEquals(RENAULT, this.vendorRepository.loadByPk(selectedVendors.get(0).getId()).getName());
+		});
+	}
+
+	@Test
+	void givenReadOnlyRepository_whenFindAll_thenEntitiesReadOnly() {
+		ReadOnlyRepository<Vendor, Long> readOnlyVendorRepository =
+				new ReadOnlyRepository<>(this.em, Vendor.class, Vendor_.id, true) {};
+		Session session = em.unwrap(Session.class);
+
+		List<Vendor> vendors = readOnlyVendorRepository.findAll();
+
+		assertEquals(16, vendors.size());
+		assertTrue(vendors.stream().allMatch(session::isReadOnly));
+		em.clear();
+		assertFalse(this.vendorRepository.findAll().stream().anyMatch(session::isReadOnly));
+	}
+
+	@Test
+	void givenCachedQuery_whenRepeated_thenServedFromCacheUntilEntityModified() {
+		LruQueryResultCache resultCache = new LruQueryResultCache(100);
+		VendorRepository cachingVendorRepository = new VendorRepository(this.em, resultCache, null);
+		rollback(() -> {
+			Vendor renault = cachingVendorRepository.loadCachedByName(RENAULT);
+			this.sqlRecorder.clear();
+			assertTrue(renault == cachingVendorRepository.loadCachedByName(RENAULT));
+			assertEquals(0, this.sqlRecorder.count());
+			assertEquals(1, resultCache.getHitCount());
+
+			cachingVendorRepository.loadCachedByName("Tesla");
+			assertEquals(2, resultCache.size());
+
+			renault.setName("Alpine");
+			cachingVendorRepository.merge(renault);
+			assertEquals(0, resultCache.size());
+
+			// The results are reloaded outside the transaction, so the uncommitted change is not cached.
+			Vendor reloadedRenault = cachingVendorRepository.loadCachedByName(RENAULT);
+			assertFalse(reloadedRenault == renault);
+			assertEquals(RENAULT, reloadedRenault.getName());
+		});
+	}
+
+	@Test
+	void givenUncommittedChange_whenCachedQueryRepeatedByOtherEntityManager_thenCommittedSnapshotShared() {
+		LruQueryResultCache resultCache = new LruQueryResultCache(100);
+		VendorRepository cachingVendorRepository = new VendorRepository(this.em, resultCache, null);
+		rollback(() -> {
+			Vendor renault = this.vendorRepository.loadByName(RENAULT);
+			renault.setName("Uncommitted");
+			this.em.flush();
+
+			Vendor cachedRenault = cachingVendorRepository.loadCachedByName(RENAULT);
+			assertEquals(RENAULT, cachedRenault.getName());
+			assertFalse(this.em.contains(cachedRenault));
+		});
+
+		EntityManager otherEm = this.em.getEntityManagerFactory().createEntityManager();
+		try {
+			VendorRepository otherCachingVendorRepository = new VendorRepository(otherEm, resultCache, null);
+			this.sqlRecorder.clear();
+			Vendor cachedRenault = otherCachingVendorRepository.loadCachedByName(RENAULT);
+			assertEquals(0, this.sqlRecorder.count());
+			assertEquals(RENAULT, cachedRenault.getName());
+			assertFalse(otherEm.contains(cachedRenault));
+			assertFalse(this.em.contains(cachedRenault));
+		} finally {
+			otherEm.close();
+		}
+	}
+
+	@Test
+	void givenCachedProjection_whenRepeated_thenServedFromCache() {
+		LruQueryResultCache resultCache = new LruQueryResultCache(100);
+		VendorRepository cachingVendorRepository = new VendorRepository(this.em, resultCache, null);
+		List<VendorSummary> summaries = cachingVendorRepository.findCachedSummariesWhereNameContains("e");
+		assertEquals(6, summaries.size());
+
+		this.sqlRecorder.clear();
+		assertEquals(summaries, cachingVendorRepository.findCachedSummariesWhereNameContains("e"));
+		assertEquals(0, this.sqlRecorder.count());
+		assertEquals(1, resultCache.getHitCount());
+		cachingVendorRepository.findCachedSummariesWhereNameContains("a");
+		assertEquals(2, resultCache.size());
+	}
+
+	@Test
+	void givenCachedQueryJoiningOrFetchingModels_whenCarModelsInvalidated_thenResultsEvicted() {
+		LruQueryResultCache resultCache = new LruQueryResultCache(100);
+		VendorRepository cachingVendorRepository = new VendorRepository(this.em, resultCache, null);
+		rollback(() -> {
+			cachingVendorRepository.listCachedWhereModelNameContains("a");
+			cachingVendorRepository.loadCachedByNameFetchingModels(RENAULT);
+			cachingVendorRepository.loadCachedByName(RENAULT);
+			assertEquals(3, resultCache.size());
+
+			resultCache.invalidate(CarModel.class);
+			assertEquals(1, resultCache.size());
+		});
+	}
+
+	@Test
+	void givenLruQueryResultCache_whenMaxWeightOrTtlExceeded_thenResultsEvicted() throws InterruptedException {
+		LruQueryResultCache resultCache = new LruQueryResultCache(5);
+		resultCache.put("region", 1, Set.of(Car.class), List.of(1, 2, 3), Duration.ofMinutes(1));
+		resultCache.put("region", 2, Set.of(Car.class), List.of(4, 5), Duration.ofMinutes(1));
+		assertEquals(List.of(1, 2, 3), resultCache.get("region", 1));
+
+		resultCache.put("region", 3, Set.of(Car.class), List.of(6), Duration.ofMinutes(1));
+		assertNull(resultCache.get("region", 2));
+		assertEquals(4, resultCache.getWeight());
+		assertEquals(1, resultCache.getEvictionCount());
+
+		resultCache.put("short", 1, Set.of(Vendor.class), List.of(7), Duration.ofMillis(1));
+		Thread.sleep(5);
+		assertNull(resultCache.get("short", 1));
+
+		resultCache.invalidate(Car.class);
+		assertEquals(0, resultCache.size());
+	}
+
+	@Test
+	void givenPkLookupCache_whenLoadCachedByPkRepeated_thenSnapshotRevalidatedByVersion() {
+		PkLookupCache<Long, Vendor> pkLookupCache = new PkLookupCache<>(10, Duration.ofMinutes(10));
+		VendorRepository cachingVendorRepository = new VendorRepository(this.em, null, pkLookupCache);
+		Long renaultId = this.vendorRepository.loadByName(RENAULT).getId();
+		em.clear();
+
+		Vendor renault = cachingVendorRepository.loadCachedWithModelsAndManufacturingPlants(renaultId);
+		assertFalse(em.contains(renault));
+		assertTrue(unitUtil.isLoaded(renault.getModels()));
+
+		this.sqlRecorder.clear();
+		assertTrue(renault == cachingVendorRepository.loadCachedWithModelsAndManufacturingPlants(renaultId));
+		// just the version check
+		assertEquals(1, this.sqlRecorder.count());
+		assertEquals(1, pkLookupCache.getHitCount());
+
+		// the non-cached lookup returns a managed entity, so its modifications are saved
+		assertTrue(em.contains(cachingVendorRepository.loadWithModelsAndManufacturingPlants(renaultId)));
+		em.clear();
+
+		em.getTransaction().begin();
+		this.vendorRepository.renameWhereNameContains("ault", "Alpine");
+		em.getTransaction().commit();
+
+		Vendor alpine = cachingVendorRepository.loadCachedWithModelsAndManufacturingPlants(renaultId);
+		assertEquals("Alpine", alpine.getName());
+
+		rollback(() -> {
+			cachingVendorRepository.merge(alpine);
+			assertEquals(0, pkLookupCache.size());
+		});
+	}
+
+	@Test
+	void givenPkLookupCache_whenKeysInvalidatedAndEvicted_thenLeastRecentlyUsedRemoved() throws InterruptedException {
+		Vendor vendor = new Vendor();
+		PkLookupCache<Long, Vendor> pkLookupCache = new PkLookupCache<>(2, Duration.ofMinutes(10));
+		for (int i = 0; i < 100; i++) {
+			pkLookupCache.put(1L, null, vendor);
+			pkLookupCache.invalidate(1L);
+		}
+		pkLookupCache.put(1L, null, vendor);
+		pkLookupCache.put(2L, null, vendor);
+		assertTrue(vendor == pkLookupCache.get(1L, null));
+		pkLookupCache.put(3L, null, vendor);
+		assertEquals(2, pkLookupCache.size());
+		assertEquals(1, pkLookupCache.getEvictionCount());
+		assertNull(pkLookupCache.get(2L, null));
+		assertTrue(vendor == pkLookupCache.get(1L, null));
+
+		PkLookupCache<Long, Vendor> shortLivedCache = new PkLookupCache<>(2, Duration.ofMillis(1));
+		shortLivedCache.put(1L, null, vendor);
+		Thread.sleep(5);
+		assertNull(shortLivedCache.get(1L, null));
+	}
+
+	@Test
+	void givenSegmentedPkLookupCache_whenKeysExceedMaxSize_thenEachSegmentEvictsItsOwnKeys() {
+		Vendor vendor = new Vendor();
+		PkLookupCache<Long, Vendor> pkLookupCache = new PkLookupCache<>(1_000, Duration.ofMinutes(10));
+		assertEquals(15, pkLookupCache.getSegmentCount());
+		for (long pk = 0; pk < 2_000; pk++) {
+			pkLookupCache.put(pk, null, vendor);
+		}
+		assertEquals(1_000, pkLookupCache.size());
+		assertEquals(1_000, pkLookupCache.getEvictionCount());
+		assertTrue(vendor == pkLookupCache.get(1_999L, null));
+		assertNull(pkLookupCache.get(0L, null));
+
+		pkLookupCache.invalidate(1_999L);
+		assertNull(pkLookupCache.get(1_999L, null));
+		pkLookupCache.clear();
+		assertEquals(0, pkLookupCache.size());
+	}
+
+	@Test
+	void whenEntityGraphRequestedRepeatedly_thenSameInstanceReused() {
+		EntityGraph<Vendor> graph = EntityGraphRegistry.get(
+				em, Vendor.class, List.of(Vendor_.models, Vendor_.manufacturingPlants));
+		EntityManager otherEm = em.getEntityManagerFactory().createEntityManager();
+		try {
+			assertTrue(graph == EntityGraphRegistry.get(
+					otherEm, Vendor.class, List.of(Vendor_.manufacturingPlants, Vendor_.models)));
+		} finally {
+			otherEm.close();
+		}
+		assertFalse(graph == EntityGraphRegistry.get(em, Vendor.class, List.of(Vendor_.models)));
+		assertTrue(EntityGraphRegistry.getByPaths(em, Vendor.class, List.of("models.cars"))
+				== EntityGraphRegistry.getByPaths(em, Vendor.class, List.of("models.cars")));
+
+		Vendor vendor = this.vendorRepository.loadWithModelsAndManufacturingPlants(1000L);
+		assertTrue(unitUtil.isLoaded(vendor.getModels()));
+	}
+
+	@Test
+	void givenCollectionResultGraph_whenPageWhere_thenPageLimitedInDatabaseAndOrderKept() {
+		List<Long> expectedIds = this.vendorRepository.selectPageWhereNameContainsA(2, 4).getResults().stream()
+				.map(Vendor::getId)
+				.collect(Collectors.toList());
+		em.clear();
+		this.sqlRecorder.clear();
+
+		ResultPage<Vendor> page = this.vendorRepository.pageWhereNameContainsA(2, 4);
+
+		assertEquals(expectedIds, page.getResults().stream().map(Vendor::getId).collect(Collectors.toList()));
+		page.getResults().forEach(vendor -> assertTrue(unitUtil.isLoaded(vendor.getModels())));
+		List<String> limitedStatements = this.sqlRecorder.getStatements().stream()
+				.filter(sql -> sql.contains(" offset "))
+				.collect(Collectors.toList());
+		assertEquals(1, limitedStatements.size());
+		assertFalse(limitedStatements.get(0).contains("CarModel"));
+	}
+
 	@Test
 	void testGetFailsOnNonUniqueResult() {
 		rollback(() -> Assertions.assertThrows(
@@ -230,18 +726,564 @@ public class RepositoryTest {
 		assertEquals(expectedTotalCount, vendorResultPage.getResults().size());
 	}
 
+	@Test
+	void givenParallelCountMode_whenPageWhere_thenCountComputedConcurrently() {
+		ResultPage<Vendor> vendorResultPage = this.vendorRepository.pageWhereModelNameContainsA(1, 100, CountMode.PARALLEL);
+		assertEquals(1, vendorResultPage.getResults().size());
+		assertEquals(1L, vendorResultPage.getTotalCountFuture().join());
+		assertTrue(vendorResultPage.isTotalCountExact());
+		assertFalse(vendorResultPage.hasNext());
+	}
+
+	@Test
+	void whenSelectAsync_thenResultsMatchSynchronousQueries() {
+		List<Vendor> vendors = this.vendorRepository.selectWhereNameContainsAsync("a").join();
+		assertEquals(
+				this.vendorRepository.selectWhereNameContains("a").stream().map(Vendor::getId).collect(Collectors.toList()),
+				vendors.stream().map(Vendor::getId).collect(Collectors.toList()));
+		assertFalse(em.contains(vendors.get(0)));
+
+		assertEquals(6L, this.vendorRepository.selectCountWhereNameContainsAsync("e").join());
+
+		ResultPage<Vendor> page = this.vendorRepository.selectPageWhereNameContainsAAsync(3, 5).join();
+		assertEquals(1, page.getResults().size());
+		assertEquals(11, page.getTotalCount());
+	}
+
+	@Test
+	void givenQueryExecutor_whenAsyncQueriesExecuted_thenQueriesRunByIt() {
+		AtomicInteger executedTasks = new AtomicInteger();
+		VendorRepository executorVendorRepository = new VendorRepository(this.em) {
+			@Override
+			protected Executor queryExecutor() {
+				return task -> {
+					executedTasks.incrementAndGet();
+					ForkJoinPool.commonPool().execute(task);
+				};
+			}
+		};
+		assertEquals(16, executorVendorRepository.findAllAsync().join().size());
+		Long renaultId = this.vendorRepository.loadByName(RENAULT).getId();
+		assertEquals(RENAULT, executorVendorRepository.getByPkAsync(renaultId).join().orElseThrow().getName());
+		ResultPage<Vendor> page = executorVendorRepository.pageWhereModelNameContainsA(1, 100, CountMode.PARALLEL);
+		assertEquals(1L, page.getTotalCountFuture().join());
+		assertEquals(3, executedTasks.get());
+	}
+
+	@Test
+	void whenParallelScanAll_thenEveryEntityProcessedOnce() {
+		Set<Long> scannedIds = ConcurrentHashMap.newKeySet();
+		long processedCount = this.carRepository.parallelScanAll(4, 1, cars -> cars.forEach(car -> scannedIds.add(car.getId())));
+		assertEquals(6, processedCount);
+		assertEquals(
+				this.carRepository.findAll().stream().map(Car::getId).collect(Collectors.toSet()),
+				scannedIds);
+	}
+
+	@Test
+	void givenPredicate_whenParallelScan_thenMatchingEntitiesProcessedAndProgressMerged() {
+		Set<String> scannedNames = ConcurrentHashMap.newKeySet();
+		List<ChunkProgress> progresses = new ArrayList<>();
+		long processedCount = this.vendorRepository.parallelScanWhereNameContains(
+				"a",
+				3,
+				vendors -> vendors.forEach(vendor -> scannedNames.add(vendor.getName())),
+				progresses::add);
+		assertEquals(11, processedCount);
+		assertEquals(
+				this.vendorRepository.selectWhereNameContains("a").stream().map(Vendor::getName).collect(Collectors.toSet()),
+				scannedNames);
+		assertEquals(11, progresses.get(progresses.size() - 1).getProcessedCount());
+		assertEquals(progresses.size(), progresses.get(progresses.size() - 1).getChunkNumber());
+	}
+
+	@Test
+	void givenFailingConsumer_whenParallelScan_thenFailureThrown() {
+		IllegalStateException exception = Assertions.assertThrows(
+				IllegalStateException.class,
+				() -> this.vendorRepository.parallelScanWhereNameContains("a", 3, vendors -> {
+					throw new IllegalStateException("Indexing failed");
+				}, progress -> {}));
+		assertEquals("Indexing failed", exception.getMessage());
+		assertEquals(0, this.vendorRepository.parallelScanWhereNameContains("xyz", 3, vendors -> {}, progress -> {}));
+	}
+
+	@Test
+	void givenLimitAndOffset_whenSelect_thenRequestedWindowReturned() {
+		List<Vendor> vendors = this.vendorRepository.selectWhereNameContainsA(100, 0);
+		assertEquals(11, vendors.size());
+		assertEquals(vendors.subList(2, 5), this.vendorRepository.selectWhereNameContainsA(3, 2));
+	}
+
+	@Test
+	void givenCursorScrollMode_whenScroll_thenBatchesReadByOneQuery() {
+		rollback(() -> {
+			List<String> names = this.vendorRepository.selectWhereNameContainsA(100, 0).stream()
+					.map(Vendor::getName)
+					.collect(Collectors.toList());
+			for (ScrollMode scrollMode : ScrollMode.values()) {
+				this.sqlRecorder.clear();
+				List<String> scrolledNames = new ArrayList<>();
+				List<Integer> batchSizes = new ArrayList<>();
+				long processedCount = this.vendorRepository.scrollWhereNameContainsA(scrollMode, 4, vendors -> {
+					batchSizes.add(vendors.size());
+					vendors.forEach(vendor -> scrolledNames.add(vendor.getName()));
+				});
+				assertEquals(11, processedCount);
+				assertEquals(names, scrolledNames);
+				assertEquals(List.of(4, 4, 3), batchSizes);
+				long selectCount = this.sqlRecorder.getStatements().stream()
+						.filter(sql -> sql.contains("like"))
+						.count();
+				assertEquals(scrollMode == ScrollMode.CURSOR ? 1 : 3, selectCount);
+			}
+		});
+	}
+
+	@Test
+	void givenFetcherAndFetchExtra_whenList_thenAssociationsLoadedInSingleRoundTrip() {
+		rollback(() -> {
+			this.sqlRecorder.clear();
+			List<Vendor> vendors = this.vendorRepository.selectWhereNameContainsFetchingModelsAndPlants("a");
+			assertEquals(11, vendors.size());
+			assertEquals(1, this.sqlRecorder.count());
+
+			PersistenceUnitUtil unitUtil = em.getEntityManagerFactory().getPersistenceUnitUtil();
+			vendors.forEach(vendor -> {
+				assertTrue(unitUtil.isLoaded(vendor, Vendor_.models.getName()));
+				vendor.getModels().size();
+				vendor.getManufacturingPlants().size();
+			});
+			assertEquals(1, this.sqlRecorder.count());
+		});
+	}
+
+	@Test
+	void givenFetchGraphAndFetchExtra_whenList_thenConflictingFetchStrategiesRejected() {
+		EntityGraph<Vendor> entityGraph = em.createEntityGraph(Vendor.class);
+		Assertions.assertThrows(
+				IllegalStateException.class,
+				() -> this.vendorRepository.selectFetchingOnlyModelsWithResultGraph(
+						ResultGraph.specifiedAndEagerAssociations(entityGraph)));
+		assertEquals(16, this.vendorRepository.selectFetchingOnlyModelsWithResultGraph(
+				ResultGraph.specifiedAssociationsOnly(entityGraph)).size());
+	}
+
+	@Test
+	void whenExists_thenOneRowCheckedWithoutLoadingEntities() {
+		this.sqlRecorder.clear();
+		assertTrue(this.vendorRepository.selectExistsWhereNameContains("a"));
+		assertFalse(this.vendorRepository.selectExistsWhereNameContains("xyz"));
+		assertTrue(this.vendorRepository.existsByName(RENAULT));
+		assertFalse(this.vendorRepository.existsByName("Trabant"));
+		assertEquals(4, this.sqlRecorder.count());
+		assertFalse(this.sqlRecorder.getStatements().stream().anyMatch(sql -> sql.contains("count(")));
+
+		Long renaultId = this.vendorRepository.loadByName(RENAULT).getId();
+		assertTrue(this.vendorRepository.existsByPk(renaultId));
+		assertFalse(this.vendorRepository.existsByPk(-1L));
+	}
+
+	@Test
+	void givenCommitFlushMode_whenExistsByPkOfPersistedEntity_thenPendingInsertFlushed() {
+		rollback(() -> {
+			this.em.setFlushMode(FlushModeType.COMMIT);
+			Vendor trabant = new Vendor("Trabant");
+			this.vendorRepository.persist(trabant);
+			assertEquals(1, this.vendorRepository.listReadOnlyWhereNameContains("Trab", FlushModeType.AUTO).size());
+			assertTrue(this.vendorRepository.existsByPk(trabant.getId()));
+
+			this.vendorRepository.remove(trabant);
+			assertFalse(this.vendorRepository.existsByPk(trabant.getId()));
+		});
+	}
+
+	@Test
+	void givenNullCountMode_whenPage_thenFailsWithClearMessage() {
+		NullPointerException selectException = Assertions.assertThrows(
+				NullPointerException.class,
+				() -> this.vendorRepository.selectPageWhereNameContainsA(1, 5, null));
+		assertEquals("Count mode must not be null", selectException.getMessage());
+		NullPointerException repositoryException = Assertions.assertThrows(
+				NullPointerException.class,
+				() -> this.vendorRepository.pageWhereModelNameContainsA(1, 5, null));
+		assertEquals("Count mode must not be null", repositoryException.getMessage());
+	}
+
+	@Test
+	void givenAsyncQueryCancelledBeforeStart_whenExecutorRunsIt_thenTaskSkipped() {
+		List<Runnable> queuedTasks = new ArrayList<>();
+		AtomicInteger executedCount = new AtomicInteger();
+		CompletableFuture<Long> count = QueryExecutors.supplyAsync(
+				this.em.getEntityManagerFactory(),
+				taskEm -> (long) executedCount.incrementAndGet(),
+				queuedTasks::add);
+
+		assertTrue(count.cancel(true));
+		queuedTasks.forEach(Runnable::run);
+		assertEquals(0, executedCount.get());
+		assertTrue(count.isCancelled());
+	}
+
+	@Test
+	void givenEstimateCountMode_whenSelectPage_thenNextPageProbed() {
+		ResultPage<Vendor> firstPage = this.vendorRepository.selectPageWhereNameContainsA(1, 5, CountMode.ESTIMATE);
+		assertEquals(5, firstPage.getResults().size());
+		assertTrue(firstPage.hasNext());
+		assertFalse(firstPage.isTotalCountExact());
+
+		ResultPage<Vendor> lastPage = this.vendorRepository.selectPageWhereNameContainsA(3, 5, CountMode.ESTIMATE);
+		assertEquals(1, lastPage.getResults().size());
+		assertFalse(lastPage.hasNext());
+		assertTrue(lastPage.isTotalCountExact());
+		assertEquals(11, lastPage.getTotalCount());
+
+		ResultPage<Vendor> pagePastEnd = this.vendorRepository.selectPageWhereNameContainsA(4, 5, CountMode.ESTIMATE);
+		assertTrue(pagePastEnd.getResults().isEmpty());
+		assertFalse(pagePastEnd.hasNext());
+		assertFalse(pagePastEnd.isTotalCountExact());
+	}
+
+	@Test
+	void givenNoCountMode_whenSelectPage_thenTotalCountUnknown() {
+		ResultPage<Vendor> page = this.vendorRepository.selectPageWhereNameContainsA(1, 5, CountMode.NONE);
+		assertEquals(5, page.getResults().size());
+		assertNull(page.getTotalCount());
+	}
+
+	@Test
+	void givenMoreThanPageRecords_whenSeekPageWhere_thenAllPagesMatchOffsetPagination() {
+		List<String> expectedNames = this.vendorRepository.selectPageWhereNameContainsA(1, 100).getResults().stream()
+				.map(Vendor::getName)
+				.collect(Collectors.toList());
+
+		List<String> seekedNames = new ArrayList<>();
+		String continuationToken = null;
+		int pageCount = 0;
+		do {
+			CursorPage<Vendor> page = this.vendorRepository.seekPageWhereNameContainsA(continuationToken, 4);
+			page.getResults().forEach(vendor -> seekedNames.add(vendor.getName()));
+			continuationToken = page.getNextToken();
+			pageCount++;
+		} while (continuationToken != null);
+
+		assertEquals(3, pageCount);
+		assertEquals(expectedNames, seekedNames);
+	}
+
+	@Test
+	void givenProxiesInPersistenceContext_whenSeekPageWhere_thenKeyReadFromLoadedState() {
+		List<String> expectedNames = this.vendorRepository.selectPageWhereNameContainsA(1, 100).getResults().stream()
+				.map(Vendor::getName)
+				.collect(Collectors.toList());
+		em.clear();
+		LongStream.rangeClosed(1000L, 1015L).forEach(id -> em.getReference(Vendor.class, id));
+
+		List<String> seekedNames = new ArrayList<>();
+		String continuationToken = null;
+		do {
+			CursorPage<Vendor> page = this.vendorRepository.seekPageWhereNameContainsA(continuationToken, 4);
+			page.getResults().forEach(vendor -> seekedNames.add(vendor.getName()));
+			continuationToken = page.getNextToken();
+		} while (continuationToken != null);
+
+		assertEquals(expectedNames, seekedNames);
+		em.clear();
+	}
+
+	@Test
+	void givenDescendingOrder_whenSelectSeekPage_thenPagesFollowEachOther() {
+		List<String> expectedNames = this.vendorRepository.selectPageWhereNameContainsA(1, 100).getResults().stream()
+				.map(Vendor::getName)
+				.collect(Collectors.toList());
+		Collections.reverse(expectedNames);
+
+		CursorPage<Vendor> firstPage = this.vendorRepository.selectSeekPageWhereNameContainsA(null, 10);
+		assertEquals(10, firstPage.getResults().size());
+		assertTrue(firstPage.hasNext());
+
+		CursorPage<Vendor> lastPage = this.vendorRepository.selectSeekPageWhereNameContainsA(firstPage.getNextToken(), 10);
+		assertEquals(1, lastPage.getResults().size());
+		assertFalse(lastPage.hasNext());
+
+		List<String> seekedNames = new ArrayList<>();
+		firstPage.getResults().forEach(vendor -> seekedNames.add(vendor.getName()));
+		lastPage.getResults().forEach(vendor -> seekedNames.add(vendor.getName()));
+		assertEquals(expectedNames, seekedNames);
+	}
+
+	@Test
+	void givenFetchedCollection_whenSelectPage_thenPageOfKeysLoadedFirst() {
+		List<Long> expectedIds = this.vendorRepository.selectPageWhereNameContainsA(2, 5).getResults().stream()
+				.map(Vendor::getId)
+				.collect(Collectors.toList());
+		this.em.clear();
+		this.sqlRecorder.clear();
+
+		ResultPage<Vendor> page = this.vendorRepository.selectPageWhereNameContainsAFetchingModels(2, 5);
+
+		assertEquals(expectedIds, page.getResults().stream().map(Vendor::getId).collect(Collectors.toList()));
+		assertEquals(11, page.getTotalCount());
+		PersistenceUnitUtil unitUtil = this.em.getEntityManagerFactory().getPersistenceUnitUtil();
+		assertTrue(page.getResults().stream().allMatch(vendor -> unitUtil.isLoaded(vendor, "models")));
+		assertTrue(this.sqlRecorder.getStatements().get(0).contains("distinct"));
+		assertTrue(this.sqlRecorder.getStatements().get(0).contains("offset"));
+	}
+
+	@Test
+	void givenFetchedCollection_whenSelectSeekPage_thenAllResultsReturned() {
+		CursorPage<Vendor> firstPage = this.vendorRepository.selectSeekPageWhereNameContainsAFetchingModels(null, 10);
+		assertEquals(10, firstPage.getResults().size());
+		assertTrue(firstPage.hasNext());
+
+		CursorPage<Vendor> lastPage =
+				this.vendorRepository.selectSeekPageWhereNameContainsAFetchingModels(firstPage.getNextToken(), 10);
+		assertEquals(1, lastPage.getResults().size());
+		assertFalse(lastPage.hasNext());
+	}
+
+	@Test
+	void givenInvalidToken_whenSeekPageWhere_thenFails() {
+		Assertions.assertThrows(
+				IllegalArgumentException.class,
+				() -> this.vendorRepository.seekPageWhereNameContainsA("not-a-token", 4));
+	}
+
+	@Test
+	void givenQueryPlanCache_whenSameQueryShapeExecuted_thenCompiledQueryReused() {
+		QueryPlanCache queryPlanCache = new QueryPlanCache(10);
+
+		assertEquals(11, this.vendorRepository.selectCompiledWhereNameLike(queryPlanCache, "%a%").size());
+		assertEquals(
+				List.of("Mercedes", "Peugeot", "Renault", "Seat", "Tesla", "Volkswagen"),
+				this.vendorRepository.selectCompiledWhereNameLike(queryPlanCache, "%e%").stream()
+						.map(Vendor::getName)
+						.collect(Collectors.toList()));
+		assertEquals(11, this.vendorRepository.selectCompiledCountWhereNameLike(queryPlanCache, "%a%"));
+		assertEquals(6, this.vendorRepository.selectCompiledCountWhereNameLike(queryPlanCache, "%e%"));
+
+		assertEquals(2, queryPlanCache.getMissCount());
+		assertEquals(2, queryPlanCache.getHitCount());
+		assertEquals(2, queryPlanCache.size());
+	}
+
+	@Test
+	void givenParameterBoundToConstantInLambda_whenCompiledQueryReused_thenParameterBoundAgain() {
+		QueryPlanCache queryPlanCache = new QueryPlanCache(10);
+		assertEquals(11, this.vendorRepository.selectCompiledWhereNameContainsA(queryPlanCache).size());
+		assertEquals(11, this.vendorRepository.selectCompiledWhereNameContainsA(queryPlanCache).size());
+		assertEquals(1, queryPlanCache.getHitCount());
+	}
+
+	@Test
+	void givenPredicateReplacedByParameterizedPredicate_whenSelect_thenLastOneApplied() {
+		assertEquals(6, this.vendorRepository.selectWhereNameContainsReplacingPredicate("e").size());
+	}
+
+	@Test
+	void givenLambdaCapturingVariables_whenCompiled_thenQueryNotCached() {
+		QueryPlanCache queryPlanCache = new QueryPlanCache(10);
+
+		assertEquals(11, this.vendorRepository.selectCompiledCountWhereNameContains(queryPlanCache, "a"));
+		assertEquals(6, this.vendorRepository.selectCompiledCountWhereNameContains(queryPlanCache, "e"));
+
+		assertEquals(0, queryPlanCache.getMissCount());
+		assertEquals(0, queryPlanCache.getHitCount());
+		assertEquals(0, queryPlanCache.size());
+	}
+
+	@Test
+	void givenFullQueryPlanCache_whenNewQueryShapeExecuted_thenLeastRecentlyUsedEvicted() {
+		QueryPlanCache queryPlanCache = new QueryPlanCache(1);
+
+		assertEquals(11, this.vendorRepository.selectCompiledCountWhereNameLike(queryPlanCache, "%a%"));
+		assertEquals(11, this.vendorRepository.selectCompiledWhereNameLike(queryPlanCache, "%a%").size());
+		assertEquals(6, this.vendorRepository.selectCompiledCountWhereNameLike(queryPlanCache, "%e%"));
+
+		assertEquals(3, queryPlanCache.getMissCount());
+		assertEquals(2, queryPlanCache.getEvictionCount());
+		assertEquals(1, queryPlanCache.size());
+	}
+
 	@Test
 	void whenCount_thenCorrectNumberReturned() {
 		long count = this.vendorRepository.selectCountWhereNameContains("a");
 		assertEquals(11, count);
 	}
 
+	@Test
+	void givenParameterizedPredicate_whenSelectWithDifferentValues_thenSameSqlGenerated() {
+		this.sqlRecorder.clear();
+		assertEquals(11, this.vendorRepository.selectWhereNameContains("a").size());
+		assertEquals(6, this.vendorRepository.selectWhereNameContains("e").size());
+
+		List<String> statements = this.sqlRecorder.getStatements().stream()
+				.filter(sql -> sql.contains("like"))
+				.collect(Collectors.toList());
+		assertEquals(2, statements.size());
+		assertEquals(statements.get(0), statements.get(1));
+		assertFalse(statements.get(0).contains("%a%"));
+	}
+
 	@Test
 	void whenSelectAll_thenAllResultsReturned() {
 		List<Vendor> vendors = this.vendorRepository.selectAll();
 		assertEquals(16, vendors.size());
 	}
 
+	@Test
+	void givenThenFetchPath_whenList_thenAssociationsLoadedWithoutFurtherQueries() {
+		this.sqlRecorder.clear();
+		List<Vendor> vendors = this.vendorRepository.selectWhereNameContainsPrefetchingModelsAndCars("a");
+		assertEquals(11, vendors.size());
+		// Vendors with models, models of the vendors to continue with and models with cars - regardless of the number of vendors
+		assertEquals(3, this.sqlRecorder.getStatements().stream()
+				.filter(sql -> sql.contains("CarModel"))
+				.count());
+
+		this.sqlRecorder.clear();
+		Set<String> carColors = vendors.stream()
+				.flatMap(vendor -> vendor.getModels().stream())
+				.flatMap(model -> model.getCars().stream())
+				.map(Car::getColor)
+				.collect(Collectors.toSet());
+		assertEquals(Set.of("red", "green", "blue"), carColors);
+		assertEquals(0, this.sqlRecorder.count());
+	}
+
+	@Test
+	void givenThenFetchCollection_whenList_thenCollectionsInitializedByOneQuery() {
+		this.sqlRecorder.clear();
+		List<Vendor> vendors = this.vendorRepository.selectWhereNameContainsPrefetchingModels("a");
+		assertEquals(11, vendors.size());
+		assertEquals(1, this.sqlRecorder.getStatements().stream()
+				.filter(sql -> sql.contains("CarModel"))
+				.count());
+
+		this.sqlRecorder.clear();
+		vendors.forEach(vendor -> assertTrue(this.unitUtil.isLoaded(vendor, Vendor_.MODELS)));
+		assertEquals(4, vendors.stream().mapToInt(vendor -> vendor.getModels().size()).sum());
+		assertEquals(0, this.sqlRecorder.count());
+	}
+
+	@Test
+	void givenRepositoryMetrics_whenQueriesExecuted_thenMetricsRecordedPerQueryShape() {
+		HistogramRepositoryMetrics metrics = new HistogramRepositoryMetrics(Duration.ofMinutes(1));
+		VendorRepository measuredRepository = new VendorRepository(this.em) {
+			@Override
+			protected RepositoryMetrics repositoryMetrics() {
+				return metrics;
+			}
+		};
+
+		measuredRepository.selectWhereNameContains("a");
+		measuredRepository.selectWhereNameContains("e");
+		measuredRepository.selectCountWhereNameContains("a");
+		measuredRepository.pageWhereNameContainsA(1, 5);
+		measuredRepository.findSummariesWhereNameContains("e");
+
+		QueryStatistics listStatistics = statisticsOf(metrics, "Vendor.list@VendorRepository.selectWhereNameContains:");
+		assertEquals(2, listStatistics.getExecutionCount());
+		assertEquals(11, listStatistics.getResultSize().getMax());
+		assertEquals(6 + 11, listStatistics.getResultSize().getSum());
+		assertTrue(listStatistics.getExecutionTimeNanos().getValueAtPercentile(50) > 0);
+
+		QueryStatistics countStatistics = statisticsOf(metrics, "Vendor.count@VendorRepository.selectCountWhereNameContains:");
+		assertEquals(1, countStatistics.getExecutionCount());
+		assertEquals(11, countStatistics.getResultSize().getMax());
+
+		assertEquals(5, statisticsOf(metrics, "Vendor.pageWhere@VendorRepository.pageWhereNameContainsA:")
+				.getResultSize().getMax());
+		assertEquals(11, statisticsOf(metrics, "Vendor.countWhere@VendorRepository.pageWhereNameContainsA:")
+				.getResultSize().getMax());
+		assertEquals(6, statisticsOf(metrics, "Vendor.projectList@VendorRepository.findSummariesWhereNameContains:")
+				.getResultSize().getMax());
+	}
+
+	@Test
+	void givenRepositoryMetrics_whenQueryFails_thenFailureRecorded() {
+		HistogramRepositoryMetrics metrics = new HistogramRepositoryMetrics(Duration.ZERO);
+		VendorRepository measuredRepository = new VendorRepository(this.em) {
+			@Override
+			protected RepositoryMetrics repositoryMetrics() {
+				return metrics;
+			}
+		};
+
+		Assertions.assertThrows(NonUniqueResultException.class, () -> measuredRepository.loadWhereNameContains("a"));
+		Assertions.assertThrows(NoResultException.class, () -> measuredRepository.loadByName("Trabant"));
+
+		QueryStatistics failedStatistics = statisticsOf(metrics, "Vendor.loadWhere@VendorRepository.loadWhereNameContains:");
+		assertEquals(1, failedStatistics.getExecutionCount());
+		assertEquals(1, failedStatistics.getFailureCount());
+		QueryStatistics notFoundStatistics = statisticsOf(metrics, "Vendor.loadWhere@VendorRepository.loadByName:");
+		assertEquals(1, notFoundStatistics.getExecutionCount());
+		assertEquals(0, notFoundStatistics.getFailureCount());
+	}
+
+	@Test
+	void whenValuesRecordedToHistogram_thenPercentilesWithinBucketPrecision() {
+		Histogram histogram = new Histogram();
+		for (long value = 1; value <= 1000; value++) {
+			histogram.record(value * 1000);
+		}
+
+		assertEquals(1000, histogram.getCount());
+		assertEquals(1_000_000, histogram.getMax());
+		long median = histogram.getValueAtPercentile(50);
+		assertTrue(median >= 500_000 && median <= 500_000 * 1.125, "Median " + median);
+		long p99 = histogram.getValueAtPercentile(99);
+		assertTrue(p99 >= 990_000 && p99 <= 1_000_000, "99th percentile " + p99);
+	}
+
+	@Test
+	void givenMaxResultSize_whenMoreResults_thenResultSizeExceededExceptionThrown() {
+		VendorRepository guardedRepository = vendorRepositoryWithMaxResultSize(10);
+
+		assertEquals(6, guardedRepository.selectWhereNameContains("e").size());
+		ResultSizeExceededException exception = Assertions.assertThrows(
+				ResultSizeExceededException.class,
+				guardedRepository::findAll);
+		assertEquals(10, exception.getMaxResultSize());
+		assertTrue(exception.getQueryShapeId().startsWith("Vendor.find@"), exception.getQueryShapeId());
+		Assertions.assertThrows(ResultSizeExceededException.class, guardedRepository::selectAll);
+
+		assertEquals(6, guardedRepository.findSummariesWhereNameContains("e").size());
+		Assertions.assertThrows(
+				ResultSizeExceededException.class,
+				() -> guardedRepository.findSummariesWhereNameContains("a"));
+	}
+
+	@Test
+	void givenMaxResultSize_whenListOrStream_thenExceedingResultsStreamed() {
+		rollback(() -> {
+			try (Stream<Vendor> vendors = vendorRepositoryWithMaxResultSize(10).findAllOrStream()) {
+				assertEquals(16, vendors.count());
+			}
+			try (Stream<Vendor> vendors = vendorRepositoryWithMaxResultSize(20).findAllOrStream()) {
+				assertEquals(16, vendors.count());
+			}
+		});
+	}
+
+	private VendorRepository vendorRepositoryWithMaxResultSize(int maxResultSize) {
+		return new VendorRepository(this.em) {
+			@Override
+			protected Integer maxResultSize() {
+				return maxResultSize;
+			}
+		};
+	}
+
+	private static QueryStatistics statisticsOf(HistogramRepositoryMetrics metrics, String queryShapeIdPrefix) {
+		return metrics.getStatistics().entrySet().stream()
+				.filter(entry -> entry.getKey().startsWith(queryShapeIdPrefix))
+				.map(Map.Entry::getValue)
+				.findFirst()
+				.orElseThrow(() -> new AssertionError("No statistics of " + queryShapeIdPrefix + " in "
+						+ metrics.getStatistics().keySet()));
+	}
+
 	private void rollback(Runnable runnable) {
 		em.getTransaction().begin();
 		try {
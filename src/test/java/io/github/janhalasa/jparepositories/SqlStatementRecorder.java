@@ -0,0 +1,34 @@
+package io.github.janhalasa.jparepositories;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Records SQL statements sent to the database, so tests can check their text and count.
+ *
+ * @author janhalasa
+ */
+public class SqlStatementRecorder implements StatementInspector {
+
+	private final List<String> statements = new ArrayList<>();
+
+	@Override
+	public synchronized String inspect(String sql) {
+		statements.add(sql);
+		return sql;
+	}
+
+	public synchronized List<String> getStatements() {
+		return new ArrayList<>(statements);
+	}
+
+	public synchronized int count() {
+		return statements.size();
+	}
+
+	public synchronized void clear() {
+		statements.clear();
+	}
+}
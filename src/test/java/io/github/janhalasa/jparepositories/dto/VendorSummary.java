@@ -0,0 +1,20 @@
+package io.github.janhalasa.jparepositories.dto;
+
+public class VendorSummary {
+
+	private final Long id;
+	private final String name;
+
+	public VendorSummary(Long id, String name) {
+		this.id = id;
+		this.name = name;
+	}
+
+	public Long getId() {
+		return id;
+	}
+
+	public String getName() {
+		return name;
+	}
+}
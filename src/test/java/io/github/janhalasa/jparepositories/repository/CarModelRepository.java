@@ -1,14 +1,19 @@
 package io.github.janhalasa.jparepositories.repository;
 
+import io.github.janhalasa.jparepositories.ChunkProgress;
 import io.github.janhalasa.jparepositories.CrudRepository;
 import io.github.janhalasa.jparepositories.entity.Car;
 import io.github.janhalasa.jparepositories.entity.CarModel;
 import io.github.janhalasa.jparepositories.entity.CarModel_;
 import io.github.janhalasa.jparepositories.entity.Car_;
+import io.github.janhalasa.jparepositories.model.OrderBy;
+import io.github.janhalasa.jparepositories.model.PredicateAndOrder;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.criteria.Join;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Consumer;
 
 /**
  *
@@ -20,6 +25,24 @@ public class CarModelRepository extends CrudRepository<CarModel, Long> {
 		super(em, CarModel.class, CarModel_.id);
 	}
 
+	public long renameAllInChunks(int chunkSize, Consumer<ChunkProgress> progressListener) {
+		return select()
+				.forEachChunk(
+						chunkSize,
+						chunk -> chunk.forEach(model -> model.setName(model.getName().toUpperCase())),
+						progressListener);
+	}
+
+	public List<String> findNamesInChunksOrderedByNameDesc(int chunkSize) {
+		List<String> names = new ArrayList<>();
+		select()
+				.whereAndOrder((cb, root) -> new PredicateAndOrder(
+						cb.isNotNull(root.get(CarModel_.name)),
+						List.of(OrderBy.desc(root.get(CarModel_.name)))))
+				.forEachChunk(chunkSize, chunk -> chunk.forEach(model -> names.add(model.getName())));
+		return names;
+	}
+
 	public List<CarModel> findWithSelectByCarColors(String color1, String color2, boolean distinct) {
 		return select()
 				.where((cb, root) -> {
@@ -8,8 +8,11 @@ import io.github.janhalasa.jparepositories.entity.Vendor;
 import io.github.janhalasa.jparepositories.model.OrderAttr;
 import jakarta.persistence.EntityManager;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 /**
  *
@@ -30,6 +33,10 @@ public class CarRepository extends ReadPersistRepository<Car, Long> {
 		);
 	}
 
+	public List<Car> findByColor(String color) {
+		return findWhere((cb, root) -> cb.equal(root.get(Car_.color), color));
+	}
+
 	public Car loadByColor(String color) {
 		return loadWhere((cb, root) -> cb.equal(root.get(Car_.color), color));
 	}
@@ -42,6 +49,22 @@ public class CarRepository extends ReadPersistRepository<Car, Long> {
 		return removeWhere((cb, root) -> cb.equal(root.get(Car_.color), color));
 	}
 
+	public Stream<Car> streamByColor(String color) {
+		return streamWhere((cb, root) -> cb.equal(root.get(Car_.color), color), 2);
+	}
+
+	public void forEachOrderedById(int clearEvery, Consumer<Car> consumer) {
+		select()
+				.orderBy(OrderAttr.asc(Car_.id))
+				.fetchSize(2)
+				.clearEvery(clearEvery)
+				.forEach(consumer);
+	}
+
+	public int removeAllByIds(Collection<Long> ids, int inListLimit) {
+		return removeAllByPk(ids, inListLimit, true);
+	}
+
 	public Car loadWithSelectByColor(String color) {
 		return select()
 				.where((cb, root) -> cb.equal(root.get(Car_.color), color))
@@ -1,20 +1,36 @@
 package io.github.janhalasa.jparepositories.repository;
 
+import io.github.janhalasa.jparepositories.ChunkProgress;
+import io.github.janhalasa.jparepositories.CursorPage;
+import io.github.janhalasa.jparepositories.PkLookupCache;
 import io.github.janhalasa.jparepositories.ResultPage;
 import io.github.janhalasa.jparepositories.VersionAwareCrudRepository;
+import io.github.janhalasa.jparepositories.dto.VendorSummary;
 import io.github.janhalasa.jparepositories.entity.CarModel;
 import io.github.janhalasa.jparepositories.entity.CarModel_;
 import io.github.janhalasa.jparepositories.entity.Vendor;
 import io.github.janhalasa.jparepositories.entity.Vendor_;
+import io.github.janhalasa.jparepositories.model.CountMode;
 import io.github.janhalasa.jparepositories.model.OrderAttr;
 import io.github.janhalasa.jparepositories.model.OrderBy;
 import io.github.janhalasa.jparepositories.model.PredicateAndOrder;
+import io.github.janhalasa.jparepositories.model.PredicateBuilder;
+import io.github.janhalasa.jparepositories.model.QueryParams;
 import io.github.janhalasa.jparepositories.model.ResultGraph;
+import io.github.janhalasa.jparepositories.model.ScrollMode;
+import io.github.janhalasa.jparepositories.select.QueryPlanCache;
+import io.github.janhalasa.jparepositories.select.QueryResultCache;
 import jakarta.persistence.EntityManager;
+import jakarta.persistence.FlushModeType;
+import jakarta.persistence.Tuple;
 import jakarta.persistence.criteria.JoinType;
 import jakarta.persistence.criteria.SetJoin;
 
+import java.time.Duration;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 /**
  *
@@ -22,8 +38,30 @@ import java.util.List;
  */
 public class VendorRepository extends VersionAwareCrudRepository<Vendor, Long> {
 	
+	private final QueryResultCache queryResultCache;
+	private final PkLookupCache<Long, Vendor> pkLookupCache;
+
 	public VendorRepository(EntityManager em) {
+		this(em, null, null);
+	}
+
+	public VendorRepository(
+			EntityManager em,
+			QueryResultCache queryResultCache,
+			PkLookupCache<Long, Vendor> pkLookupCache) {
 		super(em, Vendor.class, Vendor_.id);
+		this.queryResultCache = queryResultCache;
+		this.pkLookupCache = pkLookupCache;
+	}
+
+	@Override
+	protected QueryResultCache queryResultCache() {
+		return queryResultCache;
+	}
+
+	@Override
+	protected PkLookupCache<Long, Vendor> pkLookupCache() {
+		return pkLookupCache;
 	}
 
 	public ResultPage<Vendor> pageWhereNameContainsA(int pageNumber, int pageSize) {
@@ -38,23 +76,194 @@ public class VendorRepository extends VersionAwareCrudRepository<Vendor, Long> {
 				pageNumber,
 				pageSize,
 				true,
-				ResultGraph.specifiedAssociationsOnly(createEntityGraph(List.of(Vendor_.models))));
+				specifiedAssociationsOnly(List.of(Vendor_.models)));
 	}
 
 	public ResultPage<Vendor> selectPageWhereNameContainsA(int pageNumber, int pageSize) {
+		return selectPageWhereNameContainsA(pageNumber, pageSize, CountMode.EXACT);
+	}
+
+	public ResultPage<Vendor> selectPageWhereNameContainsA(int pageNumber, int pageSize, CountMode countMode) {
 		return select()
 				.where((cb, root) -> cb.like(root.get(Vendor_.name), "%a%"))
 				.orderBy(OrderAttr.asc(Vendor_.name), OrderAttr.desc(Vendor_.id))
+				.page(pageNumber, pageSize, countMode);
+	}
+
+	public Stream<Vendor> streamWhereNameContains(String namePattern) {
+		return streamWhere((cb, root) -> cb.like(root.get(Vendor_.name), "%" + namePattern + "%"));
+	}
+
+	public ResultPage<Vendor> selectPageWhereNameContainsAFetchingModels(int pageNumber, int pageSize) {
+		return select()
+				.where((cb, root) -> cb.like(root.get(Vendor_.name), "%a%"))
+				.orderBy(OrderAttr.asc(Vendor_.name), OrderAttr.desc(Vendor_.id))
+				.fetchExtra(List.of(Vendor_.models))
 				.page(pageNumber, pageSize);
 	}
 
+	public CursorPage<Vendor> selectSeekPageWhereNameContainsAFetchingModels(String continuationToken, int pageSize) {
+		return select()
+				.where((cb, root) -> cb.like(root.get(Vendor_.name), "%a%"))
+				.orderBy(OrderAttr.desc(Vendor_.name))
+				.fetchExtra(List.of(Vendor_.models))
+				.seekPage(continuationToken, pageSize);
+	}
+
+	public CursorPage<Vendor> seekPageWhereNameContainsA(String continuationToken, int pageSize) {
+		return super.seekPageWhere(
+				(cb, root) -> cb.like(root.get(Vendor_.name), "%a%"),
+				List.of(OrderAttr.asc(Vendor_.name), OrderAttr.desc(Vendor_.id)),
+				continuationToken,
+				pageSize);
+	}
+
+	public CursorPage<Vendor> selectSeekPageWhereNameContainsA(String continuationToken, int pageSize) {
+		return select()
+				.where((cb, root) -> cb.like(root.get(Vendor_.name), "%a%"))
+				.orderBy(OrderAttr.desc(Vendor_.name))
+				.seekPage(continuationToken, pageSize);
+	}
+
 	public long selectCountWhereNameContains(String namePattern) {
 		return select()
+				.where((cb, root, params) -> cb.like(root.get(Vendor_.name), params.param("namePattern", "%" + namePattern + "%")))
+				.count();
+	}
+
+	public List<Vendor> selectWhereNameContains(String namePattern) {
+		return select()
+				.where((cb, root, params) -> cb.like(root.get(Vendor_.name), params.param("namePattern", "%" + namePattern + "%")))
+				.list();
+	}
+
+	public CompletableFuture<List<Vendor>> selectWhereNameContainsAsync(String namePattern) {
+		return select()
+				.where((cb, root, params) -> cb.like(root.get(Vendor_.name), params.param("namePattern", "%" + namePattern + "%")))
+				.listAsync();
+	}
+
+	public CompletableFuture<Long> selectCountWhereNameContainsAsync(String namePattern) {
+		return select()
+				.where((cb, root, params) -> cb.like(root.get(Vendor_.name), params.param("namePattern", "%" + namePattern + "%")))
+				.countAsync();
+	}
+
+	public CompletableFuture<ResultPage<Vendor>> selectPageWhereNameContainsAAsync(int pageNumber, int pageSize) {
+		return select()
+				.where((cb, root) -> cb.like(root.get(Vendor_.name), "%a%"))
+				.orderBy(OrderAttr.asc(Vendor_.name), OrderAttr.desc(Vendor_.id))
+				.pageAsync(pageNumber, pageSize);
+	}
+
+	public long parallelScanWhereNameContains(
+			String namePattern,
+			int partitions,
+			Consumer<List<Vendor>> chunkConsumer,
+			Consumer<ChunkProgress> progressListener) {
+		return select()
+				.where((cb, root, params) -> cb.like(root.get(Vendor_.name), params.param("namePattern", "%" + namePattern + "%")))
+				.parallelScan(partitions, 2, chunkConsumer, progressListener);
+	}
+
+	public List<Vendor> selectWhereNameContainsA(int limit, int offset) {
+		return select()
+				.where((cb, root) -> cb.like(root.get(Vendor_.name), "%a%"))
+				.orderBy(OrderAttr.asc(Vendor_.name))
+				.limit(limit)
+				.offset(offset)
+				.list();
+	}
+
+	public long scrollWhereNameContainsA(ScrollMode scrollMode, int batchSize, Consumer<List<Vendor>> batchConsumer) {
+		return select()
+				.where((cb, root) -> cb.like(root.get(Vendor_.name), "%a%"))
+				.orderBy(OrderAttr.asc(Vendor_.name))
+				.scroll(scrollMode, batchSize, batchConsumer);
+	}
+
+	public List<Vendor> selectWhereNameContainsFetchingModelsAndPlants(String namePattern) {
+		return select()
+				.where((cb, root, params) -> cb.like(root.get(Vendor_.name), params.param("namePattern", "%" + namePattern + "%")))
+				.fetch(root -> root.fetch(Vendor_.models, JoinType.LEFT))
+				.fetchExtra(List.of(Vendor_.manufacturingPlants))
+				.list();
+	}
+
+	public List<Vendor> selectFetchingOnlyModelsWithResultGraph(ResultGraph<Vendor> resultGraph) {
+		return select()
+				.fetch(resultGraph)
+				.fetchOnly(List.of(Vendor_.models))
+				.list();
+	}
+
+	public boolean existsByName(String name) {
+		return existsWhere((cb, root) -> cb.equal(root.get(Vendor_.name), name));
+	}
+
+	public boolean selectExistsWhereNameContains(String namePattern) {
+		return select()
+				.where((cb, root, params) -> cb.like(root.get(Vendor_.name), params.param("namePattern", "%" + namePattern + "%")))
+				.exists();
+	}
+
+	public List<Vendor> selectWhereNameContainsPrefetchingModels(String namePattern) {
+		return select()
+				.where((cb, root, params) -> cb.like(root.get(Vendor_.name), params.param("namePattern", "%" + namePattern + "%")))
+				.thenFetch(Vendor_.models)
+				.list();
+	}
+
+	public List<Vendor> selectWhereNameContainsPrefetchingModelsAndCars(String namePattern) {
+		return select()
+				.where((cb, root, params) -> cb.like(root.get(Vendor_.name), params.param("namePattern", "%" + namePattern + "%")))
+				.thenFetch(Vendor_.models, CarModel_.cars)
+				.list();
+	}
+
+	public List<Vendor> selectCompiledWhereNameLike(QueryPlanCache queryPlanCache, String namePattern) {
+		return select()
+				.compiled(queryPlanCache)
+				.where((cb, root) -> cb.like(root.get(Vendor_.name), cb.parameter(String.class, "namePattern")))
+				.parameter("namePattern", namePattern)
+				.orderBy(OrderAttr.asc(Vendor_.name))
+				.list();
+	}
+
+	public List<Vendor> selectCompiledWhereNameContainsA(QueryPlanCache queryPlanCache) {
+		return select()
+				.compiled(queryPlanCache)
+				.where((cb, root, params) -> cb.like(root.get(Vendor_.name), params.param("namePattern", "%a%")))
+				.list();
+	}
+
+	public List<Vendor> selectWhereNameContainsReplacingPredicate(String namePattern) {
+		return select()
+				.where((cb, root) -> cb.like(root.get(Vendor_.name), "%"))
+				.where((cb, root, params) -> cb.like(root.get(Vendor_.name), params.param("namePattern", "%" + namePattern + "%")))
+				.list();
+	}
+
+	public long selectCompiledCountWhereNameLike(QueryPlanCache queryPlanCache, String namePattern) {
+		return select()
+				.compiled(queryPlanCache)
+				.where((cb, root) -> cb.like(root.get(Vendor_.name), cb.parameter(String.class, "namePattern")))
+				.parameter("namePattern", namePattern)
+				.count();
+	}
+
+	public long selectCompiledCountWhereNameContains(QueryPlanCache queryPlanCache, String namePattern) {
+		return select()
+				.compiled(queryPlanCache)
 				.where((cb, root) -> cb.like(root.get(Vendor_.name), "%" + namePattern + "%"))
 				.count();
 	}
 
 	public ResultPage<Vendor> pageWhereModelNameContainsA(int pageNumber, int pageSize) {
+		return pageWhereModelNameContainsA(pageNumber, pageSize, CountMode.EXACT);
+	}
+
+	public ResultPage<Vendor> pageWhereModelNameContainsA(int pageNumber, int pageSize, CountMode countMode) {
 		return super.pageWhere(
 				(cb, root) -> {
 					final SetJoin<Vendor, CarModel> carModelJoin = root.join(Vendor_.models, JoinType.INNER);
@@ -70,13 +279,104 @@ public class VendorRepository extends VersionAwareCrudRepository<Vendor, Long> {
 				pageNumber,
 				pageSize,
 				true,
-				ResultGraph.specifiedAssociationsOnly(createEntityGraph(List.of(Vendor_.models))));
+				specifiedAssociationsOnly(List.of(Vendor_.models)),
+				countMode);
+	}
+
+	public List<VendorSummary> findSummariesWhereNameContains(String namePattern) {
+		return select()
+				.where((cb, root) -> cb.like(root.get(Vendor_.name), "%" + namePattern + "%"))
+				.orderBy(OrderAttr.asc(Vendor_.name))
+				.project(VendorSummary.class, Vendor_.id, Vendor_.name)
+				.list();
+	}
+
+	public List<VendorSummary> findCachedSummariesWhereNameContains(String namePattern) {
+		return select()
+				.where((cb, root) -> cb.like(root.get(Vendor_.name), "%" + namePattern + "%"))
+				.orderBy(OrderAttr.asc(Vendor_.name))
+				.cached(Duration.ofMinutes(10), "vendorSummaries")
+				.project(VendorSummary.class, Vendor_.id, Vendor_.name)
+				.list();
+	}
+
+	public ResultPage<VendorSummary> pageSummariesWhereNameContainsA(int pageNumber, int pageSize) {
+		return select()
+				.where((cb, root) -> cb.like(root.get(Vendor_.name), "%a%"))
+				.orderBy(OrderAttr.asc(Vendor_.name), OrderAttr.desc(Vendor_.id))
+				.project(VendorSummary.class, Vendor_.id, Vendor_.name)
+				.page(pageNumber, pageSize);
+	}
+
+	public List<Tuple> findIdsAndNamesWhereNameContains(String namePattern) {
+		return select()
+				.where((cb, root) -> cb.like(root.get(Vendor_.name), "%" + namePattern + "%"))
+				.orderBy(OrderAttr.asc(Vendor_.name))
+				.selectTuple(Vendor_.id, Vendor_.name)
+				.list();
+	}
+
+	public int renameWhereNameContains(String namePattern, String newName) {
+		return updateWhere(
+				(cb, root) -> cb.like(root.get(Vendor_.name), "%" + namePattern + "%"),
+				(cb, root, update) -> update.set(Vendor_.name, newName),
+				true);
+	}
+
+	public List<Vendor> selectReadOnlyWhereNameContains(String namePattern) {
+		return select()
+				.where((cb, root) -> cb.like(root.get(Vendor_.name), "%" + namePattern + "%"))
+				.readOnly()
+				.list();
+	}
+
+	public List<Vendor> findReadOnlyWhereNameContains(String namePattern) {
+		final PredicateBuilder<Vendor> predicateBuilder =
+				(cb, root) -> cb.like(root.get(Vendor_.name), "%" + namePattern + "%");
+		return findWhere(new QueryParams<>(predicateBuilder, null, false, true));
+	}
+
+	public Vendor loadCachedByName(String name) {
+		return select()
+				.where((cb, root) -> cb.equal(root.get(Vendor_.name), name))
+				.cached(Duration.ofMinutes(10), "vendors")
+				.single();
+	}
+
+	public List<Vendor> listCachedWhereModelNameContains(String modelNamePattern) {
+		return select()
+				.where((cb, root) -> cb.like(
+						root.join(Vendor_.models).get(CarModel_.name), "%" + modelNamePattern + "%"))
+				.orderBy(OrderAttr.asc(Vendor_.id))
+				.cached(Duration.ofMinutes(10), "vendorsByModel")
+				.list();
+	}
+
+	public Vendor loadCachedByNameFetchingModels(String name) {
+		return select()
+				.where((cb, root) -> cb.equal(root.get(Vendor_.name), name))
+				.fetchExtra(List.of(Vendor_.models))
+				.cached(Duration.ofMinutes(10), "vendorsWithModels")
+				.single();
+	}
+
+	public List<Vendor> listReadOnlyWhereNameContains(String namePattern, FlushModeType flushMode) {
+		return select()
+				.where((cb, root) -> cb.like(root.get(Vendor_.name), "%" + namePattern + "%"))
+				.orderBy(OrderAttr.asc(Vendor_.id))
+				.readOnly()
+				.flushMode(flushMode)
+				.list();
 	}
 
 	public List<Vendor> selectAll() {
 		return select().list();
 	}
 
+	public Vendor loadWhereNameContains(String namePattern) {
+		return loadWhere((cb, root) -> cb.like(root.get(Vendor_.name), "%" + namePattern + "%"));
+	}
+
 	public Vendor loadByName(String name) {
 		return loadWhere((cb, root) -> cb.equal(root.get(Vendor_.name), name));
 	}
@@ -86,14 +386,18 @@ public class VendorRepository extends VersionAwareCrudRepository<Vendor, Long> {
 				(cb, root) -> new PredicateAndOrder(
 					cb.like(root.get(Vendor_.name), "%" + namePattern + "%"),
 					List.of(OrderBy.asc(root.get(Vendor_.name))
-				)), ResultGraph.specifiedAndEagerAssociations(createEntityGraph(List.of(Vendor_.models))));
+				)), specifiedAndEagerAssociations(List.of(Vendor_.models)));
 	}
 
 	public Vendor loadWithModelsAndWithoutManufacturingPlants(Long vendorId) {
-		return loadByPk(vendorId, ResultGraph.specifiedAssociationsOnly(createEntityGraph(List.of(Vendor_.models))));
+		return loadByPk(vendorId, specifiedAssociationsOnly(List.of(Vendor_.models)));
 	}
 
 	public Vendor loadWithModelsAndManufacturingPlants(Long vendorId) {
-		return loadByPk(vendorId, ResultGraph.specifiedAndEagerAssociations(createEntityGraph(List.of(Vendor_.models))));
+		return loadByPk(vendorId, specifiedAndEagerAssociations(List.of(Vendor_.models)));
+	}
+
+	public Vendor loadCachedWithModelsAndManufacturingPlants(Long vendorId) {
+		return loadCachedByPk(vendorId, specifiedAndEagerAssociations(List.of(Vendor_.models)));
 	}
 }
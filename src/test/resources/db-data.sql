@@ -29,3 +29,8 @@ INSERT INTO Car (id, model_id, color) VALUES (6, 3, 'green');
 
 INSERT INTO ManufacturingPlant (id, name, country) VALUES (1, 'RENAULT-MP1', 'France');
 INSERT INTO ManufacturingPlant (id, name, country) VALUES (2, 'RENAULT-MP2', 'Croatia');
+
+ALTER SEQUENCE Vendor_SEQ RESTART WITH 10000;
+ALTER SEQUENCE CarModel_SEQ RESTART WITH 10000;
+ALTER SEQUENCE Car_SEQ RESTART WITH 10000;
+ALTER SEQUENCE ManufacturingPlant_SEQ RESTART WITH 10000;